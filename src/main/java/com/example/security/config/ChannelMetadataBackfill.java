@@ -0,0 +1,59 @@
+package com.example.security.config;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Fills the channel type, counterpart and last activity columns of rows
+ * created before they existed, deriving them from the {@code 1on1:a:b} name
+ * encoding and the message history. Every statement only touches rows that
+ * are still empty, so running it on each start is cheap and idempotent.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ChannelMetadataBackfill implements ApplicationRunner {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int channels = jdbcTemplate.update("""
+                UPDATE channels
+                SET channel_type = CASE WHEN name LIKE '1on1:%' THEN 'DIRECT' ELSE 'GROUP' END
+                WHERE channel_type IS NULL
+                """);
+
+        int members = jdbcTemplate.update("""
+                UPDATE chat_members cm
+                JOIN channels c ON c.id = cm.channel_id
+                SET cm.channel_type = c.channel_type
+                WHERE cm.channel_type IS NULL
+                """);
+
+        jdbcTemplate.update("""
+                UPDATE chat_members me
+                JOIN chat_members other ON other.channel_id = me.channel_id AND other.user_id <> me.user_id
+                SET me.counterpart_id = other.user_id
+                WHERE me.channel_type = 'DIRECT' AND me.counterpart_id IS NULL
+                """);
+
+        jdbcTemplate.update("""
+                UPDATE chat_members cm
+                JOIN channels c ON c.id = cm.channel_id
+                SET cm.last_activity_at = COALESCE(
+                        (SELECT MAX(m.created_at) FROM messages m WHERE m.channel_id = cm.channel_id),
+                        c.created_at)
+                WHERE cm.last_activity_at IS NULL
+                """);
+
+        if (channels > 0 || members > 0) {
+            log.info("Backfilled channel type for {} channels and {} memberships", channels, members);
+        }
+    }
+}
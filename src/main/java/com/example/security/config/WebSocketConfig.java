@@ -1,12 +1,16 @@
 package com.example.security.config;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 
+import com.example.security.interceptor.ChannelSubscriptionInterceptor;
+
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
@@ -22,6 +26,9 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 	@Value("${spring.rabbitmq.stomp.relay.passcode}")
 	private String relayPasscode;
 
+	@Autowired
+	private ChannelSubscriptionInterceptor channelSubscriptionInterceptor;
+
 	@Override
 	public void configureMessageBroker(MessageBrokerRegistry config) {
 		// config.enableSimpleBroker("/topic");
@@ -39,4 +46,9 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
 	}
 
+	@Override
+	public void configureClientInboundChannel(ChannelRegistration registration) {
+		registration.interceptors(channelSubscriptionInterceptor);
+	}
+
 }
@@ -1,10 +1,15 @@
 package com.example.security.controller;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.handler.annotation.SendTo;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -13,16 +18,22 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.example.security.dto.AddMembersResponse;
 import com.example.security.dto.MessageResponse;
 import com.example.security.dto.SendingMessageRequest;
 import com.example.security.dto.ChannelSearchResponse;
-import com.example.security.dto.UserSearchResponse;
+import com.example.security.dto.ConversationResponse;
 import com.example.security.dto.CreateChannelRequest;
+import com.example.security.dto.MessageSearchResponse;
 import com.example.security.dto.UserPrincipal;
 import com.example.security.model.Chatting.Channel;
 import com.example.security.model.User;
 import com.example.security.service.ChatService;
+import com.example.security.service.MessageIngestService;
+import com.example.security.service.MessageSearchIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import java.security.Principal;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 
@@ -37,6 +48,12 @@ public class ChatController {
     @Autowired
     private ChatService chatService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MessageIngestService messageIngestService;
+
     /**
      * Send a message via HTTP POST.
      * 
@@ -45,10 +62,23 @@ public class ChatController {
      */
     @PostMapping("/send")
     public ResponseEntity<String> sendMessage(@RequestBody SendingMessageRequest request) {
-        chatService.addMessage(request);
+        messageIngestService.sendAndWait(request);
         return ResponseEntity.ok("Message sent successfully");
     }
 
+    /**
+     * Send a message over the STOMP connection ({@code /app/chat.send}). The
+     * message is stored off the inbound thread; the outcome arrives on
+     * {@code /queue/receipts-user-{id}}.
+     * 
+     * @param request Message details, the sender is the connected user
+     */
+    @MessageMapping("/chat.send")
+    public void sendMessageOverStomp(@Payload SendingMessageRequest request, Principal connectedUser) {
+        UserPrincipal user = (UserPrincipal) ((UsernamePasswordAuthenticationToken) connectedUser).getPrincipal();
+        messageIngestService.ingest(request, user.getId());
+    }
+
     /**
      * Get all messages for a specific channel.
      * 
@@ -62,6 +92,39 @@ public class ChatController {
         return ResponseEntity.ok(messages);
     }
 
+    /**
+     * Stream a channel's history as NDJSON, one message per line, in sequence
+     * order. Resume an interrupted export by passing the last received
+     * sequence number + 1 as {@code fromSequence}.
+     * 
+     * @param channelId    The channel identifier
+     * @param fromSequence First sequence number to include
+     * @param limit        Maximum number of messages to return
+     * @return Streaming NDJSON body
+     */
+    @GetMapping(value = "/channel/{channelId}/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportChannelMessages(
+            @PathVariable("channelId") Long channelId,
+            @RequestParam(value = "fromSequence", defaultValue = "0") long fromSequence,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        StreamingResponseBody body = outputStream -> {
+            chatService.streamChannelMessages(channelId, fromSequence, limit, page -> {
+                try {
+                    for (MessageResponse message : page) {
+                        outputStream.write(objectMapper.writeValueAsBytes(message));
+                        outputStream.write('\n');
+                    }
+                    outputStream.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
     /**
      * Get messages in a one-on-one conversation between two users.
      * 
@@ -121,6 +184,29 @@ public class ChatController {
         return ResponseEntity.ok(messages);
     }
 
+    /**
+     * Search a channel's messages.
+     * 
+     * @param query          Words to find, each matched as a word prefix
+     * @param sort           {@code RELEVANCE} (default) or {@code RECENT}
+     * @param beforeSequence Next page of a {@code RECENT} search
+     * @param offset         Next page of a {@code RELEVANCE} search
+     * @param limit          Page size
+     * @return Matching messages and the cursor for the next page
+     */
+    @GetMapping("/channel/{channelId}/search")
+    public ResponseEntity<MessageSearchResponse> searchMessages(@PathVariable("channelId") Long channelId,
+            @RequestParam("query") String query,
+            @RequestParam(value = "sort", required = false) MessageSearchIndex.Order sort,
+            @RequestParam(value = "beforeSequence", required = false) Long beforeSequence,
+            @RequestParam(value = "offset", required = false) Integer offset,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            Principal connectedUser) {
+        UserPrincipal user = (UserPrincipal) ((UsernamePasswordAuthenticationToken) connectedUser).getPrincipal();
+        return ResponseEntity.ok(chatService.searchMessages(channelId, user.getId(), query, sort, beforeSequence,
+                offset, limit));
+    }
+
     @GetMapping("/channels/search")
     public ResponseEntity<List<ChannelSearchResponse>> searchChannels(@RequestParam("query") String query) {
         return ResponseEntity.ok(chatService.searchChannels(query));
@@ -133,10 +219,9 @@ public class ChatController {
     }
 
     @PostMapping("/channel/{channelId}/add-members")
-    public ResponseEntity<String> addMembers(@PathVariable("channelId") Long channelId,
+    public ResponseEntity<AddMembersResponse> addMembers(@PathVariable("channelId") Long channelId,
             @RequestBody List<String> memberIds) {
-        chatService.addMembersToChannel(channelId, memberIds);
-        return ResponseEntity.ok("Members added successfully");
+        return ResponseEntity.ok(chatService.addMembersToChannel(channelId, memberIds));
     }
 
     @GetMapping("/user/channels")
@@ -145,10 +230,35 @@ public class ChatController {
         return ResponseEntity.ok(chatService.getUserChannels(user.getId()));
     }
 
+    /**
+     * Get the current user's one-on-one conversations, most recent first.
+     * For the next page pass the {@code lastActivityAt} and {@code channelId}
+     * of the last conversation received as {@code before} and
+     * {@code beforeChannelId}.
+     * 
+     * @param before          Only conversations with older activity
+     * @param beforeChannelId Tie-breaker for conversations with equal activity
+     * @param limit           Page size
+     * @return Counterpart user, last message and unread count per conversation
+     */
     @GetMapping("/user/conversations")
-    public ResponseEntity<List<UserSearchResponse>> getUserConversations(Principal connectedUser) {
+    public ResponseEntity<List<ConversationResponse>> getUserConversations(Principal connectedUser,
+            @RequestParam(value = "before", required = false) Instant before,
+            @RequestParam(value = "beforeChannelId", required = false) Long beforeChannelId,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        UserPrincipal user = (UserPrincipal) ((UsernamePasswordAuthenticationToken) connectedUser).getPrincipal();
+        return ResponseEntity.ok(chatService.getUserConversations(user.getId(), before, beforeChannelId, limit));
+    }
+
+    /**
+     * Mark a channel as read up to a sequence number.
+     */
+    @PostMapping("/channel/{channelId}/read")
+    public ResponseEntity<String> markRead(@PathVariable("channelId") Long channelId,
+            @RequestParam("sequence") Long sequence, Principal connectedUser) {
         UserPrincipal user = (UserPrincipal) ((UsernamePasswordAuthenticationToken) connectedUser).getPrincipal();
-        return ResponseEntity.ok(chatService.getUserConversations(user.getId()));
+        chatService.markRead(channelId, user.getId(), sequence);
+        return ResponseEntity.ok("Marked as read");
     }
 
     @PostMapping("/channel/{channelId}/leave")
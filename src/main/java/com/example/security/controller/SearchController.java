@@ -0,0 +1,39 @@
+package com.example.security.controller;
+
+import java.security.Principal;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.security.dto.SearchResponse;
+import com.example.security.dto.UserPrincipal;
+import com.example.security.service.SearchService;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/search")
+@RequiredArgsConstructor
+public class SearchController {
+
+    private final SearchService searchService;
+
+    /**
+     * Typeahead search for people and the caller's channels.
+     * 
+     * @param query Text typed so far
+     * @param limit Maximum results per type (default 10, at most 25)
+     * @return Matching users and channels
+     */
+    @GetMapping
+    public ResponseEntity<SearchResponse> search(@RequestParam("query") String query,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            Principal connectedUser) {
+        UserPrincipal user = (UserPrincipal) ((UsernamePasswordAuthenticationToken) connectedUser).getPrincipal();
+        return ResponseEntity.ok(searchService.search(user.getId(), query, limit));
+    }
+}
@@ -8,7 +8,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 
 import com.example.security.dto.SendingMessageRequest;
-import com.example.security.service.ChatService;
+import com.example.security.service.MessageIngestService;
 
 
 import org.springframework.web.bind.annotation.GetMapping;
@@ -19,14 +19,14 @@ import org.springframework.web.bind.annotation.RequestBody;
 
 public class TestController {
     private RabbitTemplate rabbitTemplate;
-    private ChatService chatService;
+    private MessageIngestService messageIngestService;
 
     public TestController(
         RabbitTemplate rabbitTemplate, 
-        ChatService chatService) {
+        MessageIngestService messageIngestService) {
 
         this.rabbitTemplate = rabbitTemplate;
-        this.chatService = chatService;
+        this.messageIngestService = messageIngestService;
 
     }
 
@@ -38,6 +38,6 @@ public class TestController {
 
     @PostMapping("/test/send-message")
     public void getMethodName(@RequestBody SendingMessageRequest mess) {
-        chatService.addMessage(mess);
+        messageIngestService.sendAndWait(mess);
     }
 }
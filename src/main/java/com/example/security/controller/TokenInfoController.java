@@ -11,6 +11,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.example.security.dto.UserPrincipal;
+import com.example.security.dto.ValidatedToken;
 
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
@@ -44,6 +45,13 @@ public class TokenInfoController {
             info.put("authenticated", false);
         }
 
+        // Already parsed and verified by the authentication filter
+        if (request.getAttribute(ValidatedToken.REQUEST_ATTRIBUTE) instanceof ValidatedToken token) {
+            info.put("subject", token.subject());
+            info.put("issuedAt", token.issuedAt());
+            info.put("expiresAt", token.expiresAt());
+        }
+
         // Check Authorization header
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             info.put("tokenInHeader", true);
@@ -0,0 +1,19 @@
+package com.example.security.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AddMembersResponse {
+    // Users that became members
+    private int added;
+    // Already members, or listed more than once
+    private int skipped;
+    // Not a user ID, or no such user
+    private int invalid;
+}
@@ -0,0 +1,29 @@
+package com.example.security.dto;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ConversationResponse {
+    // Counterpart user
+    private UUID id;
+    private String username;
+    private String name;
+    private String picture;
+
+    private Long channelId;
+    private Long lastSequenceNumber;
+    private String lastMessage;
+    private String lastSender;
+    private Instant lastActivityAt;
+    // Stops at ChannelRepository.UNREAD_COUNT_CAP, shown as "99+"
+    private long unreadCount;
+}
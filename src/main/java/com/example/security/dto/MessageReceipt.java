@@ -0,0 +1,27 @@
+package com.example.security.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Sent to the sender's receipt queue once a message sent over STOMP is
+ * stored, or when it was rejected.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class MessageReceipt {
+    public enum Status {
+        ACCEPTED, REJECTED
+    }
+
+    private String clientMessageId;
+    private Status status;
+    private Long channelId;
+    private Long messageId;
+    private Long sequenceNumber;
+    private String error;
+}
@@ -2,9 +2,11 @@ package com.example.security.dto;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
 @AllArgsConstructor
+@NoArgsConstructor
 public class MessageResponse {
     private Long messageId;
     private String content;
@@ -0,0 +1,21 @@
+package com.example.security.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class MessageSearchResponse {
+    private List<MessageResponse> messages;
+
+    // Cursor for the next page of a "recent" search, null on the last page
+    private Long nextBeforeSequence;
+    // Offset of the next page of a "relevance" search, null on the last page
+    private Integer nextOffset;
+}
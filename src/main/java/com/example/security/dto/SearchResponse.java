@@ -0,0 +1,17 @@
+package com.example.security.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SearchResponse {
+    private List<UserSearchResponse> users;
+    private List<ChannelSearchResponse> channels;
+}
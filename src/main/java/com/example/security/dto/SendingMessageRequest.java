@@ -12,6 +12,8 @@ import lombok.NoArgsConstructor;
 public class SendingMessageRequest {
     private Sender sender;
     private Receiver receiver;
+    // Optional, chosen by the client and echoed in the receipt of a STOMP send
+    private String clientMessageId;
 
     @Data
     @Builder
@@ -12,6 +12,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 
 import com.example.security.model.User;
+import com.example.security.repository.UserAccountView;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -67,6 +68,54 @@ public class UserPrincipal implements OAuth2User, UserDetails {
         return principal;
     }
 
+    public static UserPrincipal create(UserAccountView user) {
+        String roleName = user.getRole() != null ? user.getRole().name() : "USER";
+        List<GrantedAuthority> authorities = Collections
+                .singletonList(new SimpleGrantedAuthority("ROLE_" + roleName));
+
+        UserPrincipal principal = new UserPrincipal(
+                user.getId(),
+                user.getUsername(),
+                user.getPassword(),
+                authorities);
+
+        principal.setName(user.getName());
+        principal.setAccountNonExpired(user.isAccountNonExpired());
+        principal.setAccountNonLocked(user.isAccountNonLocked());
+        principal.setCredentialsNonExpired(user.isCredentialsNonExpired());
+        principal.setEnabled(user.isEnabled());
+        principal.setProvider(user.getProvider());
+        principal.setProviderId(user.getProviderId());
+        principal.setPicture(user.getPicture());
+
+        return principal;
+    }
+
+    /**
+     * Rebuilds the principal from the claims of a validated access token,
+     * or returns {@code null} if the token predates principal claims.
+     */
+    public static UserPrincipal create(ValidatedToken token) {
+        String userId = token.claim(ValidatedToken.CLAIM_USER_ID, String.class);
+        if (userId == null) {
+            return null;
+        }
+        String roleName = token.claim(ValidatedToken.CLAIM_ROLE, String.class);
+        List<GrantedAuthority> authorities = Collections
+                .singletonList(new SimpleGrantedAuthority("ROLE_" + (roleName != null ? roleName : "USER")));
+
+        UserPrincipal principal = new UserPrincipal(UUID.fromString(userId), token.subject(), null, authorities);
+        principal.setName(token.claim(ValidatedToken.CLAIM_NAME, String.class));
+        principal.setPicture(token.claim(ValidatedToken.CLAIM_PICTURE, String.class));
+        principal.setProvider(token.claim(ValidatedToken.CLAIM_PROVIDER, String.class));
+        // A locked or disabled account can't have been issued a token
+        principal.setAccountNonExpired(true);
+        principal.setAccountNonLocked(true);
+        principal.setCredentialsNonExpired(true);
+        principal.setEnabled(true);
+        return principal;
+    }
+
     public static UserPrincipal create(User user, Map<String, Object> attributes) {
         UserPrincipal userPrincipal = UserPrincipal.create(user);
         userPrincipal.setAttributes(attributes);
@@ -0,0 +1,37 @@
+package com.example.security.dto;
+
+import java.util.Date;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * A JWT whose signature and expiry were verified, with everything read from
+ * that single parse. The authentication filter stores it on the request
+ * under {@link #REQUEST_ATTRIBUTE} so later code doesn't parse again.
+ */
+public record ValidatedToken(String token, String subject, Date issuedAt, Date expiresAt, Claims claims) {
+
+    public static final String REQUEST_ATTRIBUTE = ValidatedToken.class.getName();
+
+    // Principal claims embedded in access tokens
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_NAME = "name";
+    public static final String CLAIM_PICTURE = "picture";
+    public static final String CLAIM_PROVIDER = "provider";
+
+    public static ValidatedToken of(String token, Claims claims) {
+        return new ValidatedToken(token, claims.getSubject(), claims.getIssuedAt(), claims.getExpiration(), claims);
+    }
+
+    /**
+     * A custom claim, or {@code null} if the token doesn't carry it.
+     */
+    public <T> T claim(String name, Class<T> type) {
+        return claims.get(name, type);
+    }
+
+    public boolean isExpired() {
+        return expiresAt != null && expiresAt.before(new Date());
+    }
+}
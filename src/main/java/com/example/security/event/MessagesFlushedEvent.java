@@ -0,0 +1,28 @@
+package com.example.security.event;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.example.security.model.Chatting.Message;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+@Getter
+public class MessagesFlushedEvent extends ApplicationEvent {
+    private final List<Message> messages;
+
+    public MessagesFlushedEvent(Object source, List<Message> messages) {
+        super(source);
+        this.messages = messages;
+    }
+
+    public Set<Long> getChannelIds() {
+        Set<Long> channelIds = new LinkedHashSet<>();
+        for (Message message : messages) {
+            channelIds.add(message.getChannelId());
+        }
+        return channelIds;
+    }
+}
@@ -3,6 +3,7 @@ package com.example.security.filter;
 import java.io.IOException;
 import java.util.Objects;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -14,8 +15,10 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import com.example.security.dto.UserPrincipal;
+import com.example.security.dto.ValidatedToken;
 import com.example.security.model.User;
 import com.example.security.service.JwtService;
+import com.example.security.service.TokenRevocationChecker;
 
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -32,6 +35,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
   private final JwtService jwtService;
   private final UserDetailsService userDetailsService;
+  private final TokenRevocationChecker revocationChecker;
+
+  // Opt-in: trust the principal claims of the access token instead of
+  // loading the user on every request
+  @Value("${application.security.jwt.stateless-principal:false}")
+  private boolean statelessPrincipal;
 
   @Override
   protected void doFilterInternal(
@@ -54,7 +63,6 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     }
 
     String jwt = null;
-    String userEmail = null;
 
     for (Cookie cookie : cookies) {
       if ("access_token".equals(cookie.getName())) {
@@ -68,18 +76,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
       return;
     }
 
-    try {
-      userEmail = jwtService.extractUsername(jwt);
-    } catch (Exception ex) {
-
-      filterChain.doFilter(request, response);
-      return;
-    }
-
-    if (userEmail == null) {
+    // The only parse of this token during the request: signature and expiry
+    // are verified here and everything else reads the result
+    ValidatedToken token = jwtService.tryValidate(jwt).orElse(null);
+    if (token == null || token.subject() == null) {
       filterChain.doFilter(request, response);
       return;
     }
+    request.setAttribute(ValidatedToken.REQUEST_ATTRIBUTE, token);
+    String userEmail = token.subject();
 
     Authentication existingAuth = SecurityContextHolder.getContext().getAuthentication();
     if (existingAuth != null && existingAuth instanceof UsernamePasswordAuthenticationToken) {
@@ -87,6 +92,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
       return;
     }
 
+    if (statelessPrincipal) {
+      // Principal straight from the claims; only a cached revocation lookup
+      // stands between the request and the database
+      UserPrincipal fromClaims = UserPrincipal.create(token);
+      if (fromClaims != null) {
+        if (!revocationChecker.isRevoked(token)) {
+          authenticate(request, fromClaims);
+        }
+        filterChain.doFilter(request, response);
+        return;
+      }
+    }
+
     UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
 
     // Convert to UserPrincipal if it's a User entity
@@ -100,19 +118,23 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
       return;
     }
 
-    log.info("userPrincipal: {}", userPrincipal);
-
-    if (jwtService.isTokenValid(jwt, userPrincipal)) {
-      UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-          userPrincipal,
-          null,
-          userPrincipal.getAuthorities());
-      authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+    log.debug("userPrincipal: {}", userPrincipal);
 
-      SecurityContextHolder.getContext().setAuthentication(authToken);
+    if (jwtService.isTokenValid(token, userPrincipal)) {
+      authenticate(request, userPrincipal);
     }
 
     filterChain.doFilter(request, response);
 
   }
+
+  private void authenticate(HttpServletRequest request, UserPrincipal userPrincipal) {
+    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+        userPrincipal,
+        null,
+        userPrincipal.getAuthorities());
+    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+
+    SecurityContextHolder.getContext().setAuthentication(authToken);
+  }
 }
@@ -40,7 +40,9 @@ public class JwtLoginSuccessHandler extends SimpleUrlAuthenticationSuccessHandle
 
         // 🧩 Check for existing valid access token (reuse if possible)
         String existingAccess = getCookieValue(request, "access_token");
-        boolean reuseToken = existingAccess != null && jwtService.isTokenValid(existingAccess, user);
+        boolean reuseToken = jwtService.tryValidate(existingAccess)
+                .map(token -> jwtService.isTokenValid(token, user))
+                .orElse(false);
 
         String accessToken = existingAccess;
         String refreshToken = getCookieValue(request, "refresh_token");
@@ -52,7 +54,7 @@ public class JwtLoginSuccessHandler extends SimpleUrlAuthenticationSuccessHandle
             Token refresh_token = Token
                 .builder()
                 .user(user)
-                .token(refreshToken)
+                .token(Token.digest(refreshToken))
                 .expired(false)
                 .revoked(false)
                 .build();
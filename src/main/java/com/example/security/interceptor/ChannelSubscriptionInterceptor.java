@@ -0,0 +1,104 @@
+package com.example.security.interceptor;
+
+import java.security.Principal;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import com.example.security.dto.UserPrincipal;
+import com.example.security.service.ChannelMembershipCache;
+import com.example.security.service.ChatService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Guards what clients may reach on the broker relay. RabbitMQ treats
+ * {@code *}, {@code #} and {@code .} in topic names as routing patterns, so
+ * {@code /topic} subscriptions are allow-listed: a group channel's topic for
+ * its members, plus the public topics. Clients only SEND to {@code /app}.
+ * The user comes from the authenticated WebSocket handshake.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ChannelSubscriptionInterceptor implements ChannelInterceptor {
+
+    private static final String TOPIC_PREFIX = "/topic/";
+    private static final String QUEUE_PREFIX = "/queue/";
+    private static final Set<String> PUBLIC_TOPICS = Set.of("/topic/rankings", "/topic/chat");
+    private static final Pattern CHANNEL_TOPIC = Pattern.compile(
+            Pattern.quote(ChatService.CHANNEL_TOPIC_PREFIX) + "(\\d{1,18})");
+
+    private final ChannelMembershipCache membershipCache;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null) {
+            return message;
+        }
+        String destination = accessor.getDestination();
+        if (accessor.getCommand() == StompCommand.SEND && isBrokerDestination(destination)) {
+            // Would be published straight to the broker, bypassing the send path
+            throw new AccessDeniedException("Cannot send to " + destination);
+        }
+        if (accessor.getCommand() != StompCommand.SUBSCRIBE || destination == null) {
+            return message;
+        }
+
+        if (destination.indexOf('*') >= 0 || destination.indexOf('#') >= 0 || destination.indexOf('.') >= 0) {
+            log.warn("Rejected wildcard subscription to {}", destination);
+            throw new AccessDeniedException("Wildcard destinations are not allowed");
+        }
+        if (!destination.startsWith(TOPIC_PREFIX) || PUBLIC_TOPICS.contains(destination)) {
+            return message;
+        }
+
+        Matcher matcher = CHANNEL_TOPIC.matcher(destination);
+        if (!matcher.matches()) {
+            log.warn("Rejected subscription to unknown topic {}", destination);
+            throw new AccessDeniedException("Unknown topic " + destination);
+        }
+        long channelId = Long.parseLong(matcher.group(1));
+
+        UUID userId = userId(accessor.getUser());
+        if (userId == null || !isMember(channelId, userId)) {
+            log.warn("Rejected subscription of {} to {}", userId, destination);
+            throw new AccessDeniedException("Not a member of channel " + channelId);
+        }
+        return message;
+    }
+
+    private static boolean isBrokerDestination(String destination) {
+        return destination != null && (destination.startsWith(TOPIC_PREFIX) || destination.startsWith(QUEUE_PREFIX));
+    }
+
+    private boolean isMember(long channelId, UUID userId) {
+        for (UUID memberId : membershipCache.members(channelId)) {
+            if (memberId.equals(userId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private UUID userId(Principal user) {
+        if (user instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof UserPrincipal principal) {
+            return principal.getId();
+        }
+        return null;
+    }
+}
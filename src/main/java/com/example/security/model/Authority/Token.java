@@ -1,5 +1,10 @@
 package com.example.security.model.Authority;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
 import com.example.security.model.User;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
@@ -32,7 +37,8 @@ public class Token {
   @GeneratedValue(strategy = GenerationType.IDENTITY)
   public Integer id;
 
-  @Column(unique = true)
+  // SHA-256 of the JWT, which itself is too long for an indexed column
+  @Column(unique = true, length = 64)
   public String token;
 
   @Enumerated(EnumType.STRING)
@@ -46,4 +52,16 @@ public class Token {
   @ManyToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "user_id")
   public User user;
+
+  /**
+   * The value stored in {@link #token} for a JWT.
+   */
+  public static String digest(String jwt) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(jwt.getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(hash);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
 }
@@ -9,9 +9,12 @@ import com.example.security.model.User;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -25,7 +28,10 @@ import lombok.NoArgsConstructor;
 @Table(
     name = "channels",
     uniqueConstraints = {
-        @UniqueConstraint(columnNames = "channel_name")
+        @UniqueConstraint(name = "uk_channels_name", columnNames = "name")
+    },
+    indexes = {
+        @Index(name = "idx_channels_type", columnList = "channel_type")
     }
 )
 @Data
@@ -41,6 +47,10 @@ public class Channel implements Serializable {
     @Column(name = "name")
     private String name;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "channel_type", length = 16)
+    private ChannelType type;
+
     @ManyToOne()
     @JoinColumn(name = "creator_id")
     private User creatorId;
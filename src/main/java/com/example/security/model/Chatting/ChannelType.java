@@ -0,0 +1,6 @@
+package com.example.security.model.Chatting;
+
+public enum ChannelType {
+    DIRECT,
+    GROUP
+}
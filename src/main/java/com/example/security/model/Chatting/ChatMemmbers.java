@@ -1,14 +1,20 @@
 package com.example.security.model.Chatting;
 
 import java.io.Serializable;
+import java.time.Instant;
 import java.util.UUID;
 
+import org.hibernate.annotations.JdbcTypeCode;
+
 import com.example.security.model.User;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.Id;
 import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -16,7 +22,13 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "chat_members")
+@Table(
+    name = "chat_members",
+    indexes = {
+        // Sidebar listings: a user's channels of one kind, most recent first
+        @Index(name = "idx_chat_members_user_type_activity", columnList = "user_id, channel_type, last_activity_at")
+    }
+)
 @IdClass(ChatMemberId.class)
 @Data
 @Builder
@@ -28,6 +40,25 @@ public class ChatMemmbers implements Serializable {
     private long channel;
 
     @Id
+    // Same column type as users.id so the two can be joined directly
     @Column(name = "user_id")
+    @JdbcTypeCode(java.sql.Types.VARCHAR)
     private UUID user;
+
+    // Highest sequence number the member has read in this channel
+    @Column(name = "last_read_sequence")
+    private long lastReadSequence;
+
+    // Copied from the channel so listings don't need to join or parse names
+    @Enumerated(EnumType.STRING)
+    @Column(name = "channel_type", length = 16)
+    private ChannelType channelType;
+
+    // The other user of a DIRECT channel
+    @Column(name = "counterpart_id")
+    @JdbcTypeCode(java.sql.Types.VARCHAR)
+    private UUID counterpart;
+
+    @Column(name = "last_activity_at")
+    private Instant lastActivityAt;
 }
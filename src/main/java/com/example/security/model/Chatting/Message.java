@@ -3,16 +3,24 @@ package com.example.security.model.Chatting;
 import java.io.Serializable;
 import java.time.Instant;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "messages")
+@Table(
+    name = "messages",
+    uniqueConstraints = {
+        // Every history, sync and scroll-back query seeks on this index
+        @UniqueConstraint(name = "uk_messages_channel_sequence", columnNames = { "channel_id", "sequence_number" })
+    }
+)
 @Data
 @Builder
 @AllArgsConstructor
@@ -20,7 +28,9 @@ import lombok.NoArgsConstructor;
 public class Message implements Serializable {
     @Id
     private Long messageId; // Local sequence-based ID
+    @Column(name = "channel_id", nullable = false)
     private Long channelId; // Identifies the conversation (1-on-1 or group)
+    @Column(name = "sequence_number", nullable = false)
     private Long sequenceNumber; // Sequence within the channel
     private String content;
     private String sender;
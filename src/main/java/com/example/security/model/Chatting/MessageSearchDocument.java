@@ -0,0 +1,42 @@
+package com.example.security.model.Chatting;
+
+import java.io.Serializable;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Searchable copy of a message's text, written asynchronously by
+ * {@link com.example.security.service.MessageSearchIndex} so the FULLTEXT
+ * index never sits on the send path. The FULLTEXT index itself is added at
+ * startup since JPA cannot declare one.
+ */
+@Entity
+@Table(
+    name = "message_search",
+    indexes = {
+        @Index(name = "idx_message_search_channel_sequence", columnList = "channel_id, sequence_number")
+    }
+)
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class MessageSearchDocument implements Serializable {
+    @Id
+    @Column(name = "message_id")
+    private Long messageId;
+    @Column(name = "channel_id", nullable = false)
+    private Long channelId;
+    @Column(name = "sequence_number", nullable = false)
+    private Long sequenceNumber;
+    @Column(columnDefinition = "TEXT")
+    private String content;
+}
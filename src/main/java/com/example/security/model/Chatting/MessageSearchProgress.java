@@ -0,0 +1,30 @@
+package com.example.security.model.Chatting;
+
+import java.io.Serializable;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * High-water mark of {@link com.example.security.service.MessageSearchIndex}:
+ * every message with an ID up to {@code indexedThrough} is indexed, so the
+ * startup catch-up scan starts there. A single row.
+ */
+@Entity
+@Table(name = "message_search_progress")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class MessageSearchProgress implements Serializable {
+    @Id
+    private Integer id;
+    @Column(name = "indexed_through", nullable = false)
+    private Long indexedThrough;
+}
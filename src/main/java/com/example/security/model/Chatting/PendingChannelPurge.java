@@ -0,0 +1,33 @@
+package com.example.security.model.Chatting;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A deleted channel whose message history
+ * {@link com.example.security.service.ChannelHistoryPurger} has not finished
+ * removing yet. Written in the deleting transaction and removed after the
+ * last purge pass, so a restart only resumes the channels listed here.
+ */
+@Entity
+@Table(name = "pending_channel_purges")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PendingChannelPurge implements Serializable {
+    @Id
+    @Column(name = "channel_id")
+    private Long channelId;
+    @Column(name = "deleted_at", nullable = false)
+    private Instant deletedAt;
+}
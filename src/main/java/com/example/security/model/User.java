@@ -12,6 +12,7 @@ import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 
@@ -73,13 +74,18 @@ public class User implements UserDetails {
     @Enumerated(EnumType.STRING)
     private com.example.security.model.Authority.Role role;
 
-    @OneToMany(mappedBy = "user", fetch = FetchType.EAGER)
+    // Only token management needs these; authentication, search and message
+    // senders read the lean views in UserRepository
+    @OneToMany(mappedBy = "user", fetch = FetchType.LAZY)
     @JsonIgnore
     @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private List<Token> tokens;
 
     @OneToMany(mappedBy = "creatorId",   fetch = FetchType.LAZY)
     @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private List<Channel> channels;
 
 
@@ -21,4 +21,33 @@ public class RedisSchema {
     public static String getSessionKey(){
         return KeyHelper.getKey("sessions");
     }
+
+    public static String getRecentMessagesKey(long channelId){
+        return KeyHelper.getKey("chat:recent:" + channelId);
+    }
+
+    public static String getRecentMessagesFloorKey(long channelId){
+        return getRecentMessagesKey(channelId) + ":floor";
+    }
+
+    // Set once the floor came from trimming or a seed rather than a first append
+    public static String getRecentMessagesFloorFirmKey(long channelId){
+        return getRecentMessagesFloorKey(channelId) + ":firm";
+    }
+
+    public static String getMembershipInvalidationChannel(){
+        return KeyHelper.getKey("chat:membership:invalidate");
+    }
+
+    public static String getChannelInvalidationChannel(){
+        return KeyHelper.getKey("chat:channel:invalidate");
+    }
+
+    public static String getSearchIndexChannel(String index){
+        return KeyHelper.getKey("chat:search:" + index + ":changed");
+    }
+
+    public static String getPrincipalInvalidationChannel(){
+        return KeyHelper.getKey("auth:principal:invalidate");
+    }
 }
@@ -0,0 +1,14 @@
+package com.example.security.repository.ChatRepo;
+
+import com.example.security.model.Chatting.ChannelType;
+
+/**
+ * Name and type of a channel, read by {@link ChannelRepository#findHeaderById}.
+ */
+public interface ChannelHeader {
+    Long getId();
+
+    String getName();
+
+    ChannelType getType();
+}
@@ -9,25 +9,91 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.example.security.dto.ChannelSearchResponse;
 import com.example.security.model.Chatting.Channel;
+import com.example.security.model.Chatting.ChannelType;
 import com.example.security.model.Chatting.ChatMemmbers;
 
 import jakarta.transaction.Transactional;
 
 @Repository
 public interface ChannelRepository extends JpaRepository<Channel, Long> {
+    // Where findConversations stops counting unread messages
+    int UNREAD_COUNT_CAP = 100;
+
     Optional<Channel> findByName(String name);
 
     List<Channel> findByNameContainingIgnoreCase(String name);
 
+    @Query("SELECT c.id AS id, c.name AS name, c.type AS type FROM Channel c WHERE c.id = :id")
+    Optional<ChannelHeader> findHeaderById(@Param("id") Long channelId);
+
     @Query("SELECT cm FROM ChatMemmbers cm WHERE cm.channel = :channelId")
     List<ChatMemmbers> findMembersByChannelId(@Param("channelId") Long channelId);
 
-    @Query("SELECT c FROM Channel c WHERE c.id IN (SELECT cm.channel FROM ChatMemmbers cm WHERE cm.user = :userId)")
-    List<Channel> findChannelsByUserId(@Param("userId") java.util.UUID userId);
+    @Query("SELECT cm.user FROM ChatMemmbers cm WHERE cm.channel = :channelId")
+    List<java.util.UUID> findMemberIdsByChannelId(@Param("channelId") Long channelId);
+
+    // One statement for the whole membership instead of a remove per row
+    @Modifying
+    @Query(value = "DELETE FROM chat_members WHERE channel_id = :channelId", nativeQuery = true)
+    int deleteMembersByChannelId(@Param("channelId") Long channelId);
+
+    // One row per one-on-one conversation of :userId with the counterpart,
+    // the last message and the unread count, newest activity first. Reads the
+    // user's DIRECT memberships from idx_chat_members_user_type_activity;
+    // pages continue after the (before, beforeChannelId) of the previous
+    // page's last row. The last message comes from the
+    // (channel_id, sequence_number) index. Unread counts stop at
+    // UNREAD_COUNT_CAP, so a never-read conversation walks at most that many
+    // rows of other users' messages instead of its whole history.
+    @Query(value = """
+            SELECT me.channel_id AS channelId,
+                   u.id AS userId, u.username AS username, u.name AS name, u.picture AS picture,
+                   m.sequence_number AS lastSequence, m.content AS lastContent, m.sender AS lastSender,
+                   me.last_activity_at AS lastActivityAt,
+                   (SELECT COUNT(*) FROM (
+                        SELECT 1 FROM messages um
+                         WHERE um.channel_id = me.channel_id
+                           AND um.sequence_number > me.last_read_sequence
+                           AND um.sender <> me.user_id
+                         ORDER BY um.sequence_number
+                         LIMIT
+                         """ + UNREAD_COUNT_CAP + """
+                         ) capped) AS unreadCount
+            FROM chat_members me
+            JOIN users u ON u.id = me.counterpart_id
+            LEFT JOIN messages m ON m.channel_id = me.channel_id
+                   AND m.sequence_number = (SELECT MAX(x.sequence_number) FROM messages x WHERE x.channel_id = me.channel_id)
+            WHERE me.user_id = :userId
+              AND me.channel_type = 'DIRECT'
+              AND (:before IS NULL
+                   OR me.last_activity_at < :before
+                   OR (me.last_activity_at = :before AND me.channel_id < :beforeChannelId))
+            ORDER BY me.last_activity_at DESC, me.channel_id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<ConversationRow> findConversations(@Param("userId") String userId,
+            @Param("before") java.time.Instant before,
+            @Param("beforeChannelId") Long beforeChannelId,
+            @Param("limit") int limit);
+
+    @Query("SELECT cm.channel FROM ChatMemmbers cm WHERE cm.user = :userId AND cm.channelType = :type")
+    List<Long> findChannelIdsByUserIdAndType(@Param("userId") java.util.UUID userId,
+            @Param("type") ChannelType type);
+
+    // The user's channels of one type, most recent activity first
+    @Query("SELECT new com.example.security.dto.ChannelSearchResponse(c.id, c.name) "
+            + "FROM ChatMemmbers cm JOIN Channel c ON c.id = cm.channel "
+            + "WHERE cm.user = :userId AND cm.channelType = :type "
+            + "ORDER BY cm.lastActivityAt DESC")
+    List<ChannelSearchResponse> findChannelsByUserIdAndType(@Param("userId") java.util.UUID userId,
+            @Param("type") ChannelType type);
 
     @Modifying
     @Transactional
-    @Query(value = "UPDATE channels SET counter = counter + 1 where id = id", nativeQuery = true)
-    int updateCounter(@Param("id") Long channelId);
+    @Query(value = "UPDATE chat_members SET last_read_sequence = GREATEST(last_read_sequence, :sequence) "
+            + "WHERE channel_id = :channelId AND user_id = :userId", nativeQuery = true)
+    int markRead(@Param("channelId") Long channelId, @Param("userId") String userId,
+            @Param("sequence") long sequence);
 }
@@ -10,15 +10,20 @@ import com.example.security.model.Chatting.Message;
 
 @Repository
 public interface ChatRepository extends JpaRepository<Message, Long> {
+    // Channel queries filter on channel_id and order by sequence_number, so they
+    // are range scans on the (channel_id, sequence_number) unique index. Pages
+    // seek from a sequence number and are capped with a Pageable of page 0,
+    // which becomes a plain LIMIT - never an OFFSET.
+
     List<Message> findAll();
 
     // Find all messages in a specific channel, ordered by sequence number
     List<Message> findByChannelIdOrderBySequenceNumberAsc(Long channelId);
 
     // Find messages in a channel after a specific sequence number (for
-    // pagination/sync)
+    // sync and streaming exports)
     List<Message> findByChannelIdAndSequenceNumberGreaterThanOrderBySequenceNumberAsc(
-            Long channelId, Long sequenceNumber);
+            Long channelId, Long sequenceNumber, Pageable pageable);
 
     // Fetch latest messages (for initial load)
     List<Message> findByChannelIdOrderBySequenceNumberDesc(Long channelId, Pageable pageable);
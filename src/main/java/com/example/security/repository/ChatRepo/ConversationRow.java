@@ -0,0 +1,29 @@
+package com.example.security.repository.ChatRepo;
+
+import java.time.Instant;
+
+/**
+ * One row of a user's conversation list, read by
+ * {@link ChannelRepository#findConversations}.
+ */
+public interface ConversationRow {
+    Long getChannelId();
+
+    String getUserId();
+
+    String getUsername();
+
+    String getName();
+
+    String getPicture();
+
+    Long getLastSequence();
+
+    String getLastContent();
+
+    String getLastSender();
+
+    Instant getLastActivityAt();
+
+    Long getUnreadCount();
+}
@@ -0,0 +1,36 @@
+package com.example.security.repository;
+
+import java.util.UUID;
+
+import com.example.security.model.Authority.Role;
+
+/**
+ * The columns authentication needs, read by
+ * {@link UserRepository#findAccountByUsername} without the entity's
+ * collections.
+ */
+public interface UserAccountView {
+    UUID getId();
+
+    String getUsername();
+
+    String getPassword();
+
+    String getName();
+
+    String getPicture();
+
+    String getProvider();
+
+    String getProviderId();
+
+    Role getRole();
+
+    boolean isEnabled();
+
+    boolean isAccountNonExpired();
+
+    boolean isAccountNonLocked();
+
+    boolean isCredentialsNonExpired();
+}
@@ -0,0 +1,16 @@
+package com.example.security.repository;
+
+import java.util.UUID;
+
+/**
+ * Public profile of a user for search results and message senders.
+ */
+public interface UserProfileView {
+    UUID getId();
+
+    String getUsername();
+
+    String getName();
+
+    String getPicture();
+}
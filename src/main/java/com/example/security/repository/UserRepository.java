@@ -1,10 +1,12 @@
 package com.example.security.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import com.example.security.model.User;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -17,4 +19,14 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     Optional<User> findByEmail(String email);
 
     List<User> findByNameContainingIgnoreCaseOrEmailContainingIgnoreCase(String name, String email);
+
+    // Lean reads for the hot paths: plain columns, no collections or
+    // associations are loaded
+
+    Optional<UserAccountView> findAccountByUsername(String username);
+
+    List<UserProfileView> findProfilesByIdIn(Collection<UUID> ids);
+
+    List<UserProfileView> findProfilesByNameContainingIgnoreCaseOrEmailContainingIgnoreCase(String name,
+            String email, Pageable pageable);
 }
@@ -0,0 +1,428 @@
+package com.example.security.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * In-memory inverted index for typeahead search over short texts such as
+ * names, e-mail addresses and channel names.
+ *
+ * Texts are split into lower-case words. Every word is indexed under each of
+ * its prefixes up to {@link #MAX_PREFIX} characters (edge n-grams), so a
+ * query word is one map lookup; longer query words are checked against the
+ * stored words of each candidate. A document matches when every query word
+ * is a prefix of one of its words.
+ *
+ * Each document gets an ordinal and posting lists are kept sorted by
+ * ordinal. Bulk loads hand out ordinals in rank order, so scanning a posting
+ * list from the start visits the best ranked documents first and a lookup can
+ * stop as soon as it has enough results. Documents added later rank after
+ * the bulk-loaded ones.
+ *
+ * Removing or re-indexing a document leaves its old ordinal as a tombstone,
+ * still listed in the posting lists and skipped by scans. Once tombstones
+ * make up a quarter of the slots the writer that crossed the line builds a
+ * compacted copy without holding the lock, keeping the order of the
+ * ordinals, and swaps it in; keys written meanwhile are carried over.
+ */
+public class PrefixSearchIndex<V> {
+
+    public static final int MAX_PREFIX = 6;
+
+    // Upper bound of candidates a single lookup looks at, keeps very short
+    // prefixes on huge indexes from scanning everything
+    private static final int MAX_CANDIDATES = 20_000;
+
+    // Below this, compacting costs more than the dead slots
+    private static final int MIN_TOMBSTONES_TO_COMPACT = 1024;
+
+    private static final int[] EMPTY = new int[0];
+    private static final String[] NO_WORDS = new String[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Replaced as a whole by a compaction
+    private Map<String, Integer> ordinalsByKey = new HashMap<>();
+    private List<Document<V>> documents = new ArrayList<>();
+    private Map<String, Postings> postings = new HashMap<>();
+    private int tombstones;
+
+    // Keys written while a bulk load reads its snapshot, see beginLoad()
+    private Set<String> changedDuringLoad;
+    // Keys written while a compacted copy is built, see compact()
+    private Set<String> changedDuringCompaction;
+
+    // A null key marks a tombstone
+    private record Document<V>(String key, V value, String[] words) {
+    }
+
+    /**
+     * An entry to bulk load, see {@link #loadAll(List)}.
+     */
+    public record Entry<V>(String key, V value, String text) {
+    }
+
+    /**
+     * Adds or replaces the document with the given key.
+     *
+     * @return {@code false} when the same document was already indexed
+     */
+    public boolean put(String key, V value, String text) {
+        String[] words = words(text);
+        List<Document<V>> snapshot;
+        lock.writeLock().lock();
+        try {
+            noteChange(key);
+            Integer existing = ordinalsByKey.get(key);
+            if (existing != null) {
+                Document<V> current = documents.get(existing);
+                if (Arrays.equals(current.words(), words)) {
+                    if (Objects.equals(current.value(), value)) {
+                        return false;
+                    }
+                    // Same words, keep the ordinal and therefore the rank
+                    documents.set(existing, new Document<>(key, value, words));
+                    return true;
+                }
+                removeOrdinal(existing);
+            }
+            addDocument(key, value, words);
+            snapshot = compactionSnapshot();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        compact(snapshot);
+        return true;
+    }
+
+    public void remove(String key) {
+        List<Document<V>> snapshot = null;
+        lock.writeLock().lock();
+        try {
+            noteChange(key);
+            Integer existing = ordinalsByKey.remove(key);
+            if (existing != null) {
+                removeOrdinal(existing);
+                snapshot = compactionSnapshot();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        compact(snapshot);
+    }
+
+    /**
+     * Call before reading the snapshot for {@link #loadAll(List)}. Documents
+     * put or removed from now on are newer than the snapshot, so the load
+     * skips their keys.
+     */
+    public void beginLoad() {
+        lock.writeLock().lock();
+        try {
+            changedDuringLoad = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gives up a load started with {@link #beginLoad()}.
+     */
+    public void cancelLoad() {
+        lock.writeLock().lock();
+        try {
+            changedDuringLoad = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds many documents at once. Entries should come in rank order, best
+     * first: the first entry is the first result whenever it matches.
+     */
+    public void loadAll(List<Entry<V>> entries) {
+        List<Document<V>> snapshot;
+        lock.writeLock().lock();
+        try {
+            for (Entry<V> entry : entries) {
+                if (changedDuringLoad != null && changedDuringLoad.contains(entry.key())) {
+                    continue;
+                }
+                if (changedDuringCompaction != null) {
+                    changedDuringCompaction.add(entry.key());
+                }
+                Integer existing = ordinalsByKey.get(entry.key());
+                if (existing != null) {
+                    removeOrdinal(existing);
+                }
+                addDocument(entry.key(), entry.value(), words(entry.text()));
+            }
+            changedDuringLoad = null;
+            snapshot = compactionSnapshot();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        compact(snapshot);
+    }
+
+    /**
+     * Returns up to {@code limit} matching values. Documents whose first word
+     * matches the first query word come first, then by rank.
+     */
+    public List<V> search(String query, int limit) {
+        return search(query, limit, value -> true);
+    }
+
+    /**
+     * Same as {@link #search(String, int)}, skipping values rejected by the
+     * filter while scanning rather than after the limit is applied.
+     */
+    public List<V> search(String query, int limit, Predicate<? super V> filter) {
+        String[] queryWords = words(query);
+        if (queryWords.length == 0 || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            // Drive the scan with the shortest posting list
+            Postings driver = null;
+            for (String word : queryWords) {
+                Postings list = postings.get(prefixOf(word));
+                if (list == null) {
+                    return List.of();
+                }
+                if (driver == null || list.size < driver.size) {
+                    driver = list;
+                }
+            }
+
+            List<V> leading = new ArrayList<>(limit);
+            List<V> others = new ArrayList<>(limit);
+            int scanned = Math.min(driver.size, MAX_CANDIDATES);
+            for (int i = 0; i < scanned && leading.size() < limit; i++) {
+                Document<V> document = documents.get(driver.ordinals[i]);
+                if (document.key() == null) {
+                    continue;
+                }
+                if (!matches(document.words(), queryWords) || !filter.test(document.value())) {
+                    continue;
+                }
+                if (document.words()[0].startsWith(queryWords[0])) {
+                    leading.add(document.value());
+                } else if (others.size() < limit) {
+                    others.add(document.value());
+                }
+            }
+
+            for (int i = 0; leading.size() < limit && i < others.size(); i++) {
+                leading.add(others.get(i));
+            }
+            return leading;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalsByKey.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ordinal slots in use, including tombstones.
+     */
+    int slots() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void noteChange(String key) {
+        if (changedDuringLoad != null) {
+            changedDuringLoad.add(key);
+        }
+        if (changedDuringCompaction != null) {
+            changedDuringCompaction.add(key);
+        }
+    }
+
+    private void addDocument(String key, V value, String[] words) {
+        int ordinal = documents.size();
+        documents.add(new Document<>(key, value, words));
+        ordinalsByKey.put(key, ordinal);
+        for (String prefix : prefixes(words)) {
+            // New ordinals are always the largest, appending keeps lists sorted
+            postings.computeIfAbsent(prefix, p -> new Postings()).append(ordinal);
+        }
+    }
+
+    private void removeOrdinal(int ordinal) {
+        // Keep the slot so other ordinals stay valid; the posting lists still
+        // list it until the next compaction and scans skip it
+        documents.set(ordinal, new Document<>(null, null, NO_WORDS));
+        tombstones++;
+    }
+
+    /**
+     * Called with the write lock held. Returns a copy of the slots when
+     * enough of them are tombstones and no compaction is running yet.
+     */
+    private List<Document<V>> compactionSnapshot() {
+        if (changedDuringCompaction != null
+                || tombstones < MIN_TOMBSTONES_TO_COMPACT || tombstones * 4 < documents.size()) {
+            return null;
+        }
+        changedDuringCompaction = new HashSet<>();
+        return new ArrayList<>(documents);
+    }
+
+    /**
+     * Builds the live documents of the snapshot into a fresh index without
+     * holding the lock, then swaps it in. Keys written since the snapshot
+     * are taken over from the current index.
+     */
+    private void compact(List<Document<V>> snapshot) {
+        if (snapshot == null) {
+            return;
+        }
+        PrefixSearchIndex<V> copy = null;
+        try {
+            copy = new PrefixSearchIndex<>();
+            // Re-adding in ordinal order keeps every document's rank
+            for (Document<V> document : snapshot) {
+                if (document.key() != null) {
+                    copy.addDocument(document.key(), document.value(), document.words());
+                }
+            }
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (copy != null) {
+                    catchUp(copy);
+                    ordinalsByKey = copy.ordinalsByKey;
+                    documents = copy.documents;
+                    postings = copy.postings;
+                    tombstones = copy.tombstones;
+                }
+                changedDuringCompaction = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void catchUp(PrefixSearchIndex<V> copy) {
+        List<Integer> moved = new ArrayList<>();
+        for (String key : changedDuringCompaction) {
+            Integer ordinal = ordinalsByKey.get(key);
+            Document<V> current = ordinal == null ? null : documents.get(ordinal);
+            Integer copied = copy.ordinalsByKey.get(key);
+            if (copied != null) {
+                if (current != null && Arrays.equals(copy.documents.get(copied).words(), current.words())) {
+                    copy.documents.set(copied, current);
+                    continue;
+                }
+                copy.ordinalsByKey.remove(key);
+                copy.removeOrdinal(copied);
+            }
+            if (ordinal != null) {
+                moved.add(ordinal);
+            }
+        }
+        // Newly written documents rank after the compacted ones, in their current order
+        Collections.sort(moved);
+        for (int ordinal : moved) {
+            Document<V> document = documents.get(ordinal);
+            copy.addDocument(document.key(), document.value(), document.words());
+        }
+    }
+
+    private static boolean matches(String[] documentWords, String[] queryWords) {
+        for (String queryWord : queryWords) {
+            boolean found = false;
+            for (String word : documentWords) {
+                if (word.startsWith(queryWord)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Set<String> prefixes(String[] words) {
+        Set<String> prefixes = new LinkedHashSet<>();
+        for (String word : words) {
+            int max = Math.min(word.length(), MAX_PREFIX);
+            for (int length = 1; length <= max; length++) {
+                prefixes.add(word.substring(0, length));
+            }
+        }
+        return prefixes;
+    }
+
+    private static String prefixOf(String word) {
+        return word.length() > MAX_PREFIX ? word.substring(0, MAX_PREFIX) : word;
+    }
+
+    /**
+     * Lower-cases, strips accents and splits on anything that is not a letter
+     * or digit, so "José.Doe@mail.com" becomes [jose, doe, mail, com].
+     */
+    static String[] words(String text) {
+        if (text == null || text.isBlank()) {
+            return new String[0];
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+        List<String> words = new ArrayList<>();
+        for (String word : normalized.split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words.toArray(new String[0]);
+    }
+
+    /**
+     * Growable sorted int array, much smaller than a boxed collection for
+     * the millions of entries a large index holds. Entries are only ever
+     * appended; removed documents are skipped through their tombstones.
+     */
+    private static final class Postings {
+        private int[] ordinals = EMPTY;
+        private int size;
+
+        void append(int ordinal) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, Math.max(4, size * 2));
+            }
+            ordinals[size++] = ordinal;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.security.service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps {@code chat_members.last_activity_at} current without an UPDATE per
+ * message. Sends only record the newest activity per channel in memory; a
+ * background thread writes all pending channels in one JDBC batch every
+ * {@code flush-interval-ms}, so a busy channel costs one UPDATE per interval.
+ */
+@Slf4j
+@Service
+public class ChannelActivityTracker {
+
+    private static final String UPDATE_SQL = "UPDATE chat_members SET last_activity_at = ? "
+            + "WHERE channel_id = ? AND (last_activity_at IS NULL OR last_activity_at < ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long flushIntervalMs;
+    private final Map<Long, Instant> pending = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService flusher;
+
+    public ChannelActivityTracker(JdbcTemplate jdbcTemplate,
+            @Value("${application.chat.activity.flush-interval-ms:1000}") long flushIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chat-activity-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(5, TimeUnit.SECONDS);
+        flushSafely();
+    }
+
+    public void touch(long channelId, Instant at) {
+        if (at == null) {
+            return;
+        }
+        pending.merge(channelId, at, (current, next) -> next.isAfter(current) ? next : current);
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Failed to write channel activity", e);
+        }
+    }
+
+    private void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>();
+        for (Long channelId : pending.keySet()) {
+            Instant at = pending.remove(channelId);
+            if (at != null) {
+                Timestamp timestamp = Timestamp.from(at);
+                rows.add(new Object[] { timestamp, channelId, timestamp });
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, rows);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.security.service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Deletes the message history of deleted channels in the background.
+ *
+ * Rows go in chunks of {@code batch-size}, each its own short statement,
+ * with a pause in between, so purging a huge channel never holds locks for
+ * long or competes hard with live traffic. Channels are purged one at a
+ * time. A second pass after {@code recheck-delay-ms} removes messages that
+ * were already in flight, e.g. in the write-behind queue, when the channel
+ * was deleted.
+ *
+ * The deleting transaction records the channel in
+ * {@code pending_channel_purges}; the row goes once the second pass is done.
+ * At startup only the channels still listed there are purged, instead of
+ * searching the whole history for orphaned rows.
+ */
+@Slf4j
+@Service
+public class ChannelHistoryPurger {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private final long pauseMs;
+    private final long recheckDelayMs;
+    private final Counter purgedCounter;
+
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "chat-history-purge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ChannelHistoryPurger(JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${application.chat.retention.batch-size:2000}") int batchSize,
+            @Value("${application.chat.retention.pause-ms:50}") long pauseMs,
+            @Value("${application.chat.retention.recheck-delay-ms:60000}") long recheckDelayMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+        this.pauseMs = pauseMs;
+        this.recheckDelayMs = recheckDelayMs;
+        this.purgedCounter = Counter.builder("chat.retention.purged")
+                .description("Messages of deleted channels removed")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePending() {
+        worker.execute(() -> {
+            List<Long> pending = jdbcTemplate.queryForList(
+                    "SELECT channel_id FROM pending_channel_purges ORDER BY channel_id", Long.class);
+            if (!pending.isEmpty()) {
+                log.info("Resuming the history purge of {} deleted channels", pending.size());
+            }
+            pending.forEach(this::purge);
+        });
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // Unfinished channels stay pending and are resumed on the next start
+        worker.shutdownNow();
+        worker.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Records a deleted channel as pending. Called inside the deleting
+     * transaction, so the record commits or rolls back with the delete.
+     */
+    public void markPending(long channelId) {
+        jdbcTemplate.update("INSERT IGNORE INTO pending_channel_purges (channel_id, deleted_at) VALUES (?, ?)",
+                channelId, Timestamp.from(Instant.now()));
+    }
+
+    /**
+     * Queues the history of a deleted channel for removal.
+     */
+    public void purge(long channelId) {
+        worker.execute(() -> purgeSafely(channelId));
+        worker.schedule(() -> {
+            if (purgeSafely(channelId)) {
+                finish(channelId);
+            }
+        }, recheckDelayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return whether both tables are clean
+     */
+    private boolean purgeSafely(long channelId) {
+        try {
+            long messages = deleteInChunks("messages", channelId);
+            purgedCounter.increment(messages);
+            deleteInChunks("message_search", channelId);
+            if (messages > 0) {
+                log.info("Purged {} messages of deleted channel {}", messages, channelId);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Failed to purge the history of channel {}, retrying on next start", channelId, e);
+        }
+        return false;
+    }
+
+    private void finish(long channelId) {
+        try {
+            jdbcTemplate.update("DELETE FROM pending_channel_purges WHERE channel_id = ?", channelId);
+        } catch (RuntimeException e) {
+            // Purged again on the next start, which finds nothing left
+            log.warn("Failed to clear the pending purge of channel {}", channelId, e);
+        }
+    }
+
+    private long deleteInChunks(String table, long channelId) throws InterruptedException {
+        String sql = "DELETE FROM " + table + " WHERE channel_id = ? LIMIT ?";
+        long total = 0;
+        while (true) {
+            // Autocommit: every chunk releases its locks right away
+            int deleted = jdbcTemplate.update(sql, channelId, batchSize);
+            total += deleted;
+            if (deleted < batchSize) {
+                return total;
+            }
+            Thread.sleep(pauseMs);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.security.service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs tasks one at a time per key and in submission order, while different
+ * keys run in parallel on virtual threads. Message sends use the channel ID
+ * as key, giving each channel its own lane.
+ *
+ * Each key has a mailbox: the tail of a chain of futures, each task starting
+ * when the previous one finished. Idle keys cost nothing; a mailbox is
+ * dropped as soon as its last task completes. At most {@code max-pending}
+ * tasks may wait across all keys, further submits are rejected.
+ */
+@Service
+public class ChannelMailboxExecutor {
+
+    private static final CompletableFuture<Void> IDLE = CompletableFuture.completedFuture(null);
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<Object, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+    private final Semaphore permits;
+    private final int maxPending;
+    private final Timer queueTimer;
+
+    public ChannelMailboxExecutor(MeterRegistry meterRegistry,
+            @Value("${application.chat.ingest.max-pending:10000}") int maxPending) {
+        this.maxPending = maxPending;
+        this.permits = new Semaphore(maxPending);
+        this.queueTimer = Timer.builder("chat.ingest.queue.latency")
+                .description("Time a task waited behind earlier tasks of its channel")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("chat.ingest.pending", permits, p -> this.maxPending - p.availablePermits())
+                .register(meterRegistry);
+        Gauge.builder("chat.ingest.mailboxes", tails, Map::size)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Queues a task behind the earlier tasks with the same key.
+     *
+     * @throws RejectedExecutionException when too many tasks are pending
+     */
+    public <T> CompletableFuture<T> submit(Object key, Supplier<T> task) {
+        if (!permits.tryAcquire()) {
+            throw new RejectedExecutionException("Too many messages pending, try again later");
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long queuedAt = System.nanoTime();
+
+        CompletableFuture<Void> tail = tails.compute(key, (k, previous) -> (previous != null ? previous : IDLE)
+                .thenRunAsync(() -> {
+                    queueTimer.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                    try {
+                        result.complete(task.get());
+                    } catch (Throwable e) {
+                        // The chain must not break: the next task runs either way
+                        result.completeExceptionally(e);
+                    } finally {
+                        permits.release();
+                    }
+                }, executor));
+        tail.whenComplete((ignored, error) -> tails.remove(key, tail));
+        return result;
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.security.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.security.cache.BoundedTtlCache;
+import com.example.security.model.Chatting.ChannelType;
+import com.example.security.redisSchema.RedisSchema;
+import com.example.security.repository.ChatRepo.ChannelRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Caches the member user IDs of each channel for message fan-out, and the
+ * group channels of each user for search.
+ *
+ * Membership changes are rare compared to sends, so entries live until the
+ * channel's membership changes. Writers call {@link #invalidate(long)}, which
+ * drops the local entry and, once the transaction commits, tells the other
+ * nodes through Redis pub/sub to drop theirs. The TTL only bounds the damage
+ * of a lost invalidation message. Writers that add or remove members also
+ * pass the users, whose group channels are dropped the same way. A deleted
+ * channel may stay in its members' sets until they expire; it is gone from
+ * every listing it could be found through.
+ *
+ * A load that read the database before an invalidation must not be cached
+ * after it, or the pre-commit membership would live for the whole TTL. Every
+ * invalidation bumps a generation, and a load whose generation moved while it
+ * ran drops what it cached.
+ */
+@Slf4j
+@Service
+public class ChannelMembershipCache {
+
+    // Array header plus reference and object per UUID, good enough for a gauge
+    private static final long ARRAY_OVERHEAD_BYTES = 16;
+    private static final long BYTES_PER_MEMBER = 40;
+    private static final int GENERATION_STRIPES = 64;
+
+    private final ChannelRepository channelRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final boolean redisInvalidation;
+    private final BoundedTtlCache<Long, UUID[]> cache;
+    private final BoundedTtlCache<UUID, Set<Long>> groupsByUser;
+    // Channels share a fixed set of generations; a collision only costs a miss
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+    private final AtomicLongArray userGenerations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public ChannelMembershipCache(ChannelRepository channelRepository,
+            StringRedisTemplate redisTemplate,
+            RedisMessageListenerContainer listenerContainer,
+            MeterRegistry meterRegistry,
+            @Value("${application.chat.membership-cache.max-size:10000}") int maxSize,
+            @Value("${application.chat.membership-cache.ttl-seconds:3600}") long ttlSeconds,
+            @Value("${application.chat.membership-cache.redis-invalidation:true}") boolean redisInvalidation) {
+        this.channelRepository = channelRepository;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.redisInvalidation = redisInvalidation;
+        this.cache = new BoundedTtlCache<>(maxSize, Duration.ofSeconds(ttlSeconds),
+                members -> ARRAY_OVERHEAD_BYTES + BYTES_PER_MEMBER * members.length);
+        this.groupsByUser = new BoundedTtlCache<>(maxSize, Duration.ofSeconds(ttlSeconds));
+
+        FunctionCounter.builder("chat.membership.cache.hits", cache, BoundedTtlCache::hitCount)
+                .register(meterRegistry);
+        FunctionCounter.builder("chat.membership.cache.misses", cache, BoundedTtlCache::missCount)
+                .register(meterRegistry);
+        Gauge.builder("chat.membership.cache.hit.ratio", cache, BoundedTtlCache::hitRatio)
+                .register(meterRegistry);
+        Gauge.builder("chat.membership.cache.size", cache, BoundedTtlCache::size)
+                .register(meterRegistry);
+        Gauge.builder("chat.membership.cache.bytes", cache, BoundedTtlCache::weight)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        if (!redisInvalidation) {
+            return;
+        }
+        listenerContainer.addMessageListener((message, pattern) -> {
+            // "<channelId>" or "<channelId>:<userId>,<userId>,..."
+            String body = new String(message.getBody());
+            int separator = body.indexOf(':');
+            try {
+                List<UUID> users = new ArrayList<>();
+                if (separator >= 0) {
+                    for (String user : body.substring(separator + 1).split(",")) {
+                        users.add(UUID.fromString(user));
+                    }
+                }
+                evict(Long.parseLong(separator < 0 ? body : body.substring(0, separator)), users);
+            } catch (IllegalArgumentException e) {
+                log.warn("Ignoring malformed membership invalidation message");
+            }
+        }, new ChannelTopic(RedisSchema.getMembershipInvalidationChannel()));
+    }
+
+    /**
+     * Returns the user IDs of every member of the channel. The array is
+     * shared, callers must not modify it.
+     */
+    public UUID[] members(long channelId) {
+        UUID[] members = cache.get(channelId);
+        if (members == null) {
+            int stripe = stripeFor(Long.hashCode(channelId));
+            long generation = generations.get(stripe);
+            List<UUID> loaded = channelRepository.findMemberIdsByChannelId(channelId);
+            members = loaded.toArray(new UUID[0]);
+            cache.put(channelId, members);
+            // An invalidation between the query and the put removed nothing,
+            // take the possibly stale entry back out
+            if (generations.get(stripe) != generation) {
+                cache.invalidate(channelId);
+            }
+        }
+        return members;
+    }
+
+    /**
+     * Returns the IDs of the group channels the user is a member of. The set
+     * is shared, callers must not modify it.
+     */
+    public Set<Long> groupChannels(UUID userId) {
+        Set<Long> channelIds = groupsByUser.get(userId);
+        if (channelIds == null) {
+            int stripe = stripeFor(userId.hashCode());
+            long generation = userGenerations.get(stripe);
+            channelIds = Set.copyOf(channelRepository.findChannelIdsByUserIdAndType(userId, ChannelType.GROUP));
+            groupsByUser.put(userId, channelIds);
+            if (userGenerations.get(stripe) != generation) {
+                groupsByUser.invalidate(userId);
+            }
+        }
+        return channelIds;
+    }
+
+    /**
+     * Drops the cached members of a channel whose membership changed. Called
+     * inside the changing transaction, the entry is dropped again after
+     * commit so a concurrent reader can't keep the pre-commit membership.
+     */
+    public void invalidate(long channelId) {
+        invalidate(channelId, List.of());
+    }
+
+    /**
+     * Same as {@link #invalidate(long)}, also dropping the group channels of
+     * the users who joined or left.
+     */
+    public void invalidate(long channelId, Collection<UUID> changedUsers) {
+        List<UUID> users = List.copyOf(changedUsers);
+        evict(channelId, users);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            broadcast(channelId, users);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidateCommitted(channelId, users);
+            }
+        });
+    }
+
+    /**
+     * Drops the cached members of a channel once the change has committed,
+     * here and on the other nodes. For callbacks that already run after
+     * commit, where {@link #invalidate(long)} could not register its own.
+     */
+    public void invalidateCommitted(long channelId, Collection<UUID> changedUsers) {
+        List<UUID> users = List.copyOf(changedUsers);
+        evict(channelId, users);
+        broadcast(channelId, users);
+    }
+
+    private void evict(long channelId, List<UUID> users) {
+        // Bump first, so a load that puts after this eviction sees the change
+        generations.incrementAndGet(stripeFor(Long.hashCode(channelId)));
+        cache.invalidate(channelId);
+        for (UUID user : users) {
+            userGenerations.incrementAndGet(stripeFor(user.hashCode()));
+            groupsByUser.invalidate(user);
+        }
+    }
+
+    private static int stripeFor(int hash) {
+        return (hash & 0x7fffffff) % GENERATION_STRIPES;
+    }
+
+    private void broadcast(long channelId, List<UUID> users) {
+        if (!redisInvalidation) {
+            return;
+        }
+        StringBuilder body = new StringBuilder(Long.toString(channelId));
+        for (int i = 0; i < users.size(); i++) {
+            body.append(i == 0 ? ':' : ',').append(users.get(i));
+        }
+        try {
+            redisTemplate.convertAndSend(RedisSchema.getMembershipInvalidationChannel(), body.toString());
+        } catch (RuntimeException e) {
+            // Other nodes fall back to the TTL
+            log.warn("Failed to publish membership invalidation for channel {}", channelId, e);
+        }
+    }
+}
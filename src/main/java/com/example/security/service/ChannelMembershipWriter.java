@@ -0,0 +1,135 @@
+package com.example.security.service;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.example.security.model.Chatting.ChannelType;
+import com.example.security.repository.ChatRepo.ChannelRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Adds many members to a channel with a handful of statements instead of a
+ * lookup and an insert per member: existing members are read in one query,
+ * requested IDs are checked against {@code users} in chunks, and only the
+ * difference is written with batched {@code INSERT IGNORE}s.
+ *
+ * Runs inside the caller's transaction.
+ */
+@Service
+@RequiredArgsConstructor
+public class ChannelMembershipWriter {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private static final String INSERT_SQL = "INSERT IGNORE INTO chat_members "
+            + "(channel_id, user_id, last_read_sequence, channel_type, last_activity_at) VALUES (?, ?, 0, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ChannelRepository channelRepository;
+
+    /**
+     * Outcome of a bulk add.
+     *
+     * @param added   Users that became members, in request order
+     * @param skipped Requested users that already were members, including
+     *                repeated IDs
+     * @param invalid IDs that are not UUIDs or not existing users
+     */
+    public record Result(List<UUID> added, int skipped, int invalid) {
+    }
+
+    public Result addMembers(long channelId, ChannelType type, Collection<String> memberIds, Instant now) {
+        if (memberIds == null || memberIds.isEmpty()) {
+            return new Result(List.of(), 0, 0);
+        }
+
+        int invalid = 0;
+        Set<UUID> requested = new LinkedHashSet<>();
+        for (String memberId : memberIds) {
+            try {
+                requested.add(UUID.fromString(memberId));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                invalid++;
+            }
+        }
+        int skipped = memberIds.size() - invalid - requested.size();
+
+        Set<UUID> existing = new HashSet<>(channelRepository.findMemberIdsByChannelId(channelId));
+        List<UUID> candidates = new ArrayList<>(requested.size());
+        for (UUID userId : requested) {
+            if (existing.contains(userId)) {
+                skipped++;
+            } else {
+                candidates.add(userId);
+            }
+        }
+
+        Set<String> known = existingUsers(candidates);
+        List<UUID> toInsert = new ArrayList<>(candidates.size());
+        for (UUID userId : candidates) {
+            if (known.contains(userId.toString())) {
+                toInsert.add(userId);
+            } else {
+                invalid++;
+            }
+        }
+
+        List<UUID> added = insert(channelId, type, toInsert, now);
+        // Rows a concurrent add inserted first
+        skipped += toInsert.size() - added.size();
+        return new Result(added, skipped, invalid);
+    }
+
+    private Set<String> existingUsers(List<UUID> userIds) {
+        Set<String> known = new HashSet<>();
+        for (int from = 0; from < userIds.size(); from += CHUNK_SIZE) {
+            List<UUID> chunk = userIds.subList(from, Math.min(from + CHUNK_SIZE, userIds.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            known.addAll(jdbcTemplate.queryForList("SELECT id FROM users WHERE id IN (" + placeholders + ")",
+                    String.class, chunk.stream().map(UUID::toString).toArray()));
+        }
+        return known;
+    }
+
+    private List<UUID> insert(long channelId, ChannelType type, List<UUID> userIds, Instant now) {
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
+        Timestamp activity = Timestamp.from(now);
+        int[][] counts = jdbcTemplate.batchUpdate(INSERT_SQL, userIds, CHUNK_SIZE, (ps, userId) -> {
+            ps.setLong(1, channelId);
+            ps.setString(2, userId.toString());
+            ps.setString(3, type.name());
+            ps.setTimestamp(4, activity);
+        });
+
+        List<UUID> added = new ArrayList<>(userIds.size());
+        int i = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                // 0 means IGNORE dropped a duplicate. Rewritten batches only
+                // report SUCCESS_NO_INFO and cannot tell duplicates apart, the
+                // existing members were already filtered out above, so those
+                // are counted as inserted
+                if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                    added.add(userIds.get(i));
+                }
+                i++;
+            }
+        }
+        return added;
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.security.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.security.cache.BoundedTtlCache;
+import com.example.security.model.Chatting.Channel;
+import com.example.security.model.Chatting.ChannelType;
+import com.example.security.model.Chatting.ChatMemmbers;
+import com.example.security.redisSchema.RedisSchema;
+import com.example.security.repository.ChatRepo.ChannelHeader;
+import com.example.security.repository.ChatRepo.ChannelRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Resolves the channel a message goes to without querying MySQL on every
+ * send: channel IDs (including ones that don't exist) and one-on-one user
+ * pairs are cached.
+ *
+ * A missing one-on-one channel is created in its own transaction. When two
+ * first messages race, the unique channel name lets exactly one insert win
+ * and the other re-reads the winner's channel.
+ *
+ * Deleting a channel evicts it here, again after commit, and on the other
+ * nodes through Redis pub/sub, like {@link ChannelMembershipCache}. A lookup
+ * that overlapped an eviction does not cache what it read. Creating a group
+ * channel evicts its ID the same way once committed, so a lookup that found
+ * it missing earlier does not hide it for the negative TTL.
+ */
+@Slf4j
+@Service
+public class ChannelResolver {
+
+    public record ResolvedChannel(long id, String name, ChannelType type) {
+        public boolean isGroup() {
+            return type == ChannelType.GROUP;
+        }
+    }
+
+    private final ChannelRepository channelRepository;
+    private final MessageSequenceGenerator sequenceGenerator;
+    private final TransactionTemplate ownTransaction;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final boolean redisInvalidation;
+
+    private final BoundedTtlCache<Long, ResolvedChannel> channelsById;
+    private final BoundedTtlCache<Long, Boolean> missingIds;
+    private final BoundedTtlCache<String, Long> directByPair;
+    // Bumped by every eviction; deletes are rare, so one counter is enough
+    private final AtomicLong generation = new AtomicLong();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ChannelResolver(ChannelRepository channelRepository,
+            MessageSequenceGenerator sequenceGenerator,
+            PlatformTransactionManager transactionManager,
+            StringRedisTemplate redisTemplate,
+            RedisMessageListenerContainer listenerContainer,
+            @Value("${application.chat.channel-cache.max-size:10000}") int maxSize,
+            @Value("${application.chat.channel-cache.ttl-seconds:3600}") long ttlSeconds,
+            @Value("${application.chat.channel-cache.negative-ttl-seconds:30}") long negativeTtlSeconds,
+            @Value("${application.chat.channel-cache.redis-invalidation:true}") boolean redisInvalidation) {
+        this.channelRepository = channelRepository;
+        this.sequenceGenerator = sequenceGenerator;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.redisInvalidation = redisInvalidation;
+        this.ownTransaction = new TransactionTemplate(transactionManager);
+        this.ownTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.channelsById = new BoundedTtlCache<>(maxSize, Duration.ofSeconds(ttlSeconds));
+        this.missingIds = new BoundedTtlCache<>(maxSize, Duration.ofSeconds(negativeTtlSeconds));
+        this.directByPair = new BoundedTtlCache<>(maxSize, Duration.ofSeconds(ttlSeconds));
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        if (!redisInvalidation) {
+            return;
+        }
+        listenerContainer.addMessageListener((message, pattern) -> {
+            // "<id>:<name>", names may contain colons themselves
+            String body = new String(message.getBody());
+            int separator = body.indexOf(':');
+            try {
+                long channelId = Long.parseLong(separator < 0 ? body : body.substring(0, separator));
+                evict(channelId, separator < 0 ? null : body.substring(separator + 1));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring malformed channel invalidation message");
+            }
+        }, new ChannelTopic(RedisSchema.getChannelInvalidationChannel()));
+    }
+
+    /**
+     * Returns the channel with the given ID, or {@code null} if it doesn't
+     * exist.
+     */
+    public ResolvedChannel findById(long channelId) {
+        ResolvedChannel channel = channelsById.get(channelId);
+        if (channel != null) {
+            return channel;
+        }
+        if (missingIds.get(channelId) != null) {
+            return null;
+        }
+        long loadedAt = generation.get();
+        ChannelHeader header = channelRepository.findHeaderById(channelId).orElse(null);
+        if (header == null) {
+            missingIds.put(channelId, Boolean.TRUE);
+            return null;
+        }
+        channel = new ResolvedChannel(channelId, header.getName(), header.getType());
+        channelsById.put(channelId, channel);
+        // Read before a delete committed, don't keep it for the TTL
+        if (generation.get() != loadedAt) {
+            channelsById.invalidate(channelId);
+        }
+        return channel;
+    }
+
+    public boolean isGroup(long channelId) {
+        ResolvedChannel channel = findById(channelId);
+        return channel != null && channel.isGroup();
+    }
+
+    /**
+     * Returns the one-on-one channel of two users, creating it with both
+     * users as members on the first message.
+     */
+    public long resolveDirect(String userA, String userB) {
+        String name = sequenceGenerator.generateOneOnOneChannelId(userA, userB);
+        Long cached = directByPair.get(name);
+        if (cached != null) {
+            return cached;
+        }
+
+        long loadedAt = generation.get();
+        Long channelId = readInOwnTransaction(name);
+        if (channelId == null) {
+            channelId = createDirect(name, UUID.fromString(userA), UUID.fromString(userB));
+        }
+        directByPair.put(name, channelId);
+        channelsById.put(channelId, new ResolvedChannel(channelId, name, ChannelType.DIRECT));
+        if (generation.get() != loadedAt) {
+            directByPair.invalidate(name);
+            channelsById.invalidate(channelId);
+        }
+        return channelId;
+    }
+
+    /**
+     * Forgets a deleted channel. Called inside the deleting transaction; the
+     * channel is evicted again once it commits, on this node and, through
+     * Redis, on the others.
+     */
+    public void invalidate(long channelId, String name) {
+        evict(channelId, name);
+        evictAfterCommit(channelId, name);
+    }
+
+    /**
+     * Forgets that a new channel was missing. Called inside the creating
+     * transaction; the ID is evicted once it commits, on this node and,
+     * through Redis, on the others.
+     */
+    public void created(long channelId) {
+        evictAfterCommit(channelId, null);
+    }
+
+    private void evictAfterCommit(long channelId, String name) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(channelId, name);
+            broadcast(channelId, name);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(channelId, name);
+                broadcast(channelId, name);
+            }
+        });
+    }
+
+    private void evict(long channelId, String name) {
+        generation.incrementAndGet();
+        channelsById.invalidate(channelId);
+        missingIds.invalidate(channelId);
+        if (name != null) {
+            directByPair.invalidate(name);
+        }
+    }
+
+    private void broadcast(long channelId, String name) {
+        if (!redisInvalidation) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(RedisSchema.getChannelInvalidationChannel(),
+                    name != null ? channelId + ":" + name : Long.toString(channelId));
+        } catch (RuntimeException e) {
+            // Other nodes fall back to the TTL
+            log.warn("Failed to publish invalidation for channel {}", channelId, e);
+        }
+    }
+
+    private long createDirect(String name, UUID userA, UUID userB) {
+        try {
+            long channelId = ownTransaction.execute(status -> {
+                Instant now = Instant.now();
+                Channel channel = channelRepository.save(Channel.builder()
+                        .name(name)
+                        .type(ChannelType.DIRECT)
+                        .counter(sequenceGenerator.initialCounter())
+                        .createdAt(now)
+                        .build());
+
+                entityManager.persist(directMember(channel.getId(), userA, userB, now));
+                if (!userA.equals(userB)) {
+                    entityManager.persist(directMember(channel.getId(), userB, userA, now));
+                }
+                entityManager.flush();
+                return channel.getId();
+            });
+            // Committed with the initial counter, so the first block is handed
+            // out locally instead of leased
+            sequenceGenerator.seedChannel(channelId);
+            return channelId;
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent first message created the channel, use theirs
+            Long winner = readInOwnTransaction(name);
+            if (winner == null) {
+                throw new RuntimeException("Failed to create conversation " + name, e);
+            }
+            log.debug("Lost the race creating {}, using channel {}", name, winner);
+            return winner;
+        }
+    }
+
+    private ChatMemmbers directMember(long channelId, UUID user, UUID counterpart, Instant now) {
+        return ChatMemmbers.builder()
+                .channel(channelId)
+                .user(user)
+                .channelType(ChannelType.DIRECT)
+                .counterpart(counterpart)
+                .lastActivityAt(now)
+                .build();
+    }
+
+    // A fresh transaction sees channels committed after the caller's snapshot
+    private Long readInOwnTransaction(String name) {
+        return ownTransaction.execute(status -> channelRepository.findByName(name)
+                .map(Channel::getId)
+                .orElse(null));
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.security.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.example.security.dto.ChannelSearchResponse;
+import com.example.security.redisSchema.RedisSchema;
+import com.example.security.search.PrefixSearchIndex;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Typeahead index over group channel names. One-on-one channels are not
+ * searchable. Built in the background after startup; until then
+ * {@link #search} returns {@code null} and callers fall back to the
+ * database.
+ *
+ * Changes are published through Redis pub/sub; every node re-reads the
+ * changed channel from the database.
+ */
+@Slf4j
+@Service
+public class ChannelSearchIndex {
+
+    private static final int LOAD_PAGE_SIZE = 10_000;
+    private static final String GROUP_FILTER =
+            "(channel_type = 'GROUP' OR (channel_type IS NULL AND name NOT LIKE '1on1:%'))";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final boolean redisSync;
+    private final PrefixSearchIndex<ChannelSearchResponse> index = new PrefixSearchIndex<>();
+    private final Timer lookupTimer;
+
+    private volatile boolean ready;
+
+    public ChannelSearchIndex(JdbcTemplate jdbcTemplate,
+            StringRedisTemplate redisTemplate,
+            RedisMessageListenerContainer listenerContainer,
+            MeterRegistry meterRegistry,
+            @Value("${application.chat.search-index.redis-sync:true}") boolean redisSync) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.redisSync = redisSync;
+        this.lookupTimer = Timer.builder("chat.search.lookup")
+                .tag("index", "channels")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("chat.search.documents", index, PrefixSearchIndex::size)
+                .tag("index", "channels")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        if (!redisSync) {
+            return;
+        }
+        listenerContainer.addMessageListener((message, pattern) -> {
+            try {
+                refresh(Long.parseLong(new String(message.getBody())));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring malformed channel search index message");
+            } catch (RuntimeException e) {
+                log.warn("Failed to refresh the channel search index", e);
+            }
+        }, new ChannelTopic(RedisSchema.getSearchIndexChannel("channels")));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        Thread loader = new Thread(this::load, "channel-search-index");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Indexes a committed group channel here and on the other nodes.
+     */
+    public void put(long channelId, String name) {
+        if (index.put(Long.toString(channelId), new ChannelSearchResponse(channelId, name), name)) {
+            publish(channelId);
+        }
+    }
+
+    /**
+     * Drops a deleted channel here and on the other nodes.
+     */
+    public void remove(long channelId) {
+        index.remove(Long.toString(channelId));
+        publish(channelId);
+    }
+
+    /**
+     * Returns up to {@code limit} ranked matches, or {@code null} while the
+     * index is still loading.
+     */
+    public List<ChannelSearchResponse> search(String query, int limit) {
+        return search(query, limit, channel -> true);
+    }
+
+    public List<ChannelSearchResponse> search(String query, int limit, Predicate<ChannelSearchResponse> filter) {
+        if (!ready) {
+            return null;
+        }
+        return lookupTimer.record((Supplier<List<ChannelSearchResponse>>) () -> index.search(query, limit, filter));
+    }
+
+    // Re-reads one channel after another node changed it
+    private void refresh(long channelId) {
+        List<String> names = jdbcTemplate.queryForList(
+                "SELECT name FROM channels WHERE id = ? AND " + GROUP_FILTER, String.class, channelId);
+        if (names.isEmpty()) {
+            index.remove(Long.toString(channelId));
+        } else {
+            index.put(Long.toString(channelId), new ChannelSearchResponse(channelId, names.get(0)), names.get(0));
+        }
+    }
+
+    private void publish(long channelId) {
+        if (!redisSync) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(RedisSchema.getSearchIndexChannel("channels"), Long.toString(channelId));
+        } catch (RuntimeException e) {
+            // Other nodes pick it up on their next restart
+            log.warn("Failed to publish search index change of channel {}", channelId, e);
+        }
+    }
+
+    private void load() {
+        long started = System.currentTimeMillis();
+        List<PrefixSearchIndex.Entry<ChannelSearchResponse>> entries = new ArrayList<>();
+        long lastId = 0;
+        index.beginLoad();
+        try {
+            while (true) {
+                List<PrefixSearchIndex.Entry<ChannelSearchResponse>> page = jdbcTemplate.query(
+                        "SELECT id, name FROM channels WHERE id > ? AND " + GROUP_FILTER + " ORDER BY id LIMIT ?",
+                        (rs, row) -> {
+                            long id = rs.getLong("id");
+                            String name = rs.getString("name");
+                            return new PrefixSearchIndex.Entry<>(Long.toString(id),
+                                    new ChannelSearchResponse(id, name), name);
+                        },
+                        lastId, LOAD_PAGE_SIZE);
+                entries.addAll(page);
+                if (page.size() < LOAD_PAGE_SIZE) {
+                    break;
+                }
+                lastId = Long.parseLong(page.get(page.size() - 1).key());
+            }
+
+            // Shorter names first: a closer match for the same prefix
+            entries.sort(Comparator.comparingInt(
+                    (PrefixSearchIndex.Entry<ChannelSearchResponse> e) -> e.text() != null ? e.text().length() : 0));
+            index.loadAll(entries);
+            ready = true;
+            log.info("Channel search index loaded {} channels in {} ms", entries.size(),
+                    System.currentTimeMillis() - started);
+        } catch (RuntimeException e) {
+            index.cancelLoad();
+            log.error("Failed to build the channel search index, searches stay on the database", e);
+        }
+    }
+}
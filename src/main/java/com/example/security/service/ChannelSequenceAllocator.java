@@ -0,0 +1,177 @@
+package com.example.security.service;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Hands out per-channel sequence numbers from the {@code channels.counter}
+ * column, with one {@code UPDATE ... LAST_INSERT_ID(...)} per lease.
+ *
+ * Clients and caches treat sequence order as commit order, so how numbers
+ * are leased depends on {@code application.chat.sequence.single-node}:
+ * <ul>
+ * <li>Several nodes (the default): every message takes its number in the
+ * sender's transaction. The channel row stays locked until the message
+ * commits, so sends to one channel commit in sequence order on every
+ * node.</li>
+ * <li>A single node: blocks of {@code block-size} numbers are leased in
+ * their own transaction and handed out from memory. The per-channel lanes
+ * of {@link ChannelMailboxExecutor} keep commit order on that node. Numbers
+ * left in a block when the node stops are skipped: sequences stay unique and
+ * increasing across restarts, but are not gap-free.</li>
+ * </ul>
+ * Write-behind persistence commits messages after the send, so it keeps
+ * commit order only on a single node.
+ */
+@Slf4j
+@Service
+public class ChannelSequenceAllocator {
+
+    private static final int STRIPES = 64;
+
+    // LAST_INSERT_ID(expr) makes the new counter come back as the generated
+    // key, so the lease needs no SELECT
+    private static final String LEASE_SQL = "UPDATE channels SET counter = LAST_INSERT_ID(counter + ?) WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate leaseTransaction;
+    private final boolean singleNode;
+    private final long blockSize;
+
+    // Channels hash onto a fixed set of locks so hot channels don't contend
+    // with each other, without keeping one lock object per channel.
+    private final Lock[] stripes = new Lock[STRIPES];
+    private final Map<Long, SequenceBlock> blocks = new ConcurrentHashMap<>();
+
+    public ChannelSequenceAllocator(JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${application.chat.sequence.single-node:false}") boolean singleNode,
+            @Value("${application.chat.sequence.block-size:1000}") long blockSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.singleNode = singleNode;
+        this.blockSize = singleNode ? blockSize : 1;
+        // Outside the caller's transaction: the lease commits on its own, so a
+        // rollback of the message that triggered it can't hand the block out
+        // again after a restart
+        this.leaseTransaction = new TransactionTemplate(transactionManager);
+        this.leaseTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Returns the next sequence number for a channel. On a single node a new
+     * block is leased only when the current one is used up; otherwise the
+     * number is taken in the caller's transaction.
+     */
+    public long next(long channelId) {
+        if (!singleNode) {
+            return increment(channelId, 1);
+        }
+        Lock lock = stripeFor(channelId);
+        lock.lock();
+        try {
+            SequenceBlock block = blocks.get(channelId);
+            if (block == null || block.isExhausted()) {
+                block = lease(channelId);
+                blocks.put(channelId, block);
+            }
+            return block.next++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Counter value to store on a channel created by this node. On a single
+     * node the first block is handed to the caller through
+     * {@link #seed(long)}, which avoids leasing against a row that is not
+     * committed yet.
+     */
+    public long initialCounter() {
+        return singleNode ? blockSize : 0;
+    }
+
+    /**
+     * Installs the first block for a channel that was just created with
+     * {@link #initialCounter()}. Call it after the channel committed; a send
+     * that got in first has already leased past the first block, which is
+     * then skipped.
+     */
+    public void seed(long channelId) {
+        if (!singleNode) {
+            return;
+        }
+        Lock lock = stripeFor(channelId);
+        lock.lock();
+        try {
+            blocks.putIfAbsent(channelId, new SequenceBlock(1, blockSize));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops the in-memory block of a channel, e.g. after it was deleted.
+     */
+    public void release(long channelId) {
+        blocks.remove(channelId);
+    }
+
+    private SequenceBlock lease(long channelId) {
+        long last = leaseTransaction.execute(status -> increment(channelId, blockSize));
+        log.debug("Leased sequences {}..{} for channel {}", last - blockSize + 1, last, channelId);
+        return new SequenceBlock(last - blockSize + 1, last);
+    }
+
+    /**
+     * Bumps the counter and returns its new value, in one round trip.
+     */
+    private long increment(long channelId, long by) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        int updated = jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(LEASE_SQL, Statement.RETURN_GENERATED_KEYS);
+            statement.setLong(1, by);
+            statement.setLong(2, channelId);
+            return statement;
+        }, keyHolder);
+        if (updated == 0 || keyHolder.getKey() == null) {
+            throw new RuntimeException("Channel not found!");
+        }
+        return keyHolder.getKey().longValue();
+    }
+
+    private Lock stripeFor(long channelId) {
+        return stripes[(Long.hashCode(channelId) & 0x7fffffff) % STRIPES];
+    }
+
+    private static final class SequenceBlock {
+        private long next;
+        private final long last;
+
+        private SequenceBlock(long first, long last) {
+            this.next = first;
+            this.last = last;
+        }
+
+        private boolean isExhausted() {
+            return next > last;
+        }
+    }
+}
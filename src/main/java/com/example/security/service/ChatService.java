@@ -1,25 +1,39 @@
 package com.example.security.service;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import com.example.security.dto.AddMembersResponse;
 import com.example.security.dto.MessageResponse;
 import com.example.security.dto.SendingMessageRequest;
 import com.example.security.dto.ChannelSearchResponse;
-import com.example.security.dto.UserSearchResponse;
+import com.example.security.dto.ConversationResponse;
 import com.example.security.dto.CreateChannelRequest;
+import com.example.security.dto.MessageSearchResponse;
+import com.example.security.event.MessagesFlushedEvent;
 import com.example.security.model.User;
 import com.example.security.model.Chatting.Channel;
+import com.example.security.model.Chatting.ChannelType;
 import com.example.security.model.Chatting.Message;
 import com.example.security.repository.UserRepository;
 import com.example.security.repository.ChatRepo.ChannelRepository;
 import com.example.security.repository.ChatRepo.ChatRepository;
+import com.example.security.repository.ChatRepo.ConversationRow;
+import com.example.security.service.SenderProfileResolver.SenderProfile;
 import com.example.security.model.Chatting.ChatMemmbers;
 
 import jakarta.persistence.EntityManager;
@@ -27,8 +41,6 @@ import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
 
 import java.util.UUID;
-import java.util.Optional;
-import java.util.Collections;
 
 import java.util.Map;
 import java.util.HashMap;
@@ -41,29 +53,75 @@ public class ChatService {
     private SimpMessagingTemplate messagingTemplate;
     private MessageSequenceGenerator sequenceGenerator;
     private ChannelRepository channelRepository;
+    private MessageWriteBehindQueue writeBehindQueue;
+    private SenderProfileResolver senderProfileResolver;
+    private RecentMessageCache recentMessageCache;
+    private ChannelMembershipCache membershipCache;
+    private StompFanoutSender fanoutSender;
+    private ChannelResolver channelResolver;
+    private ChannelActivityTracker activityTracker;
+    private ChannelSearchIndex channelSearchIndex;
+    private MessageSearchIndex messageSearchIndex;
+    private ChannelMembershipWriter membershipWriter;
+    private ChannelHistoryPurger historyPurger;
 
     @PersistenceContext
     private EntityManager entityManager;
 
+    // Push only the new message instead of the latest window on every send
+    @Value("${application.chat.fanout.delta:false}")
+    private boolean deltaFanout;
+
+    @Value("${application.chat.fanout.group-topic:false}")
+    private boolean groupTopicFanout;
+
     private static final String CHANNEL_PREFIX = "/group";
     private static final String PUBLIC_CHANNEL = CHANNEL_PREFIX + "/public";
+    public static final String CHANNEL_TOPIC_PREFIX = "/topic/channel-";
+    private static final int INITIAL_PAGE_SIZE = 15;
+    private static final int EXPORT_PAGE_SIZE = 500;
+    // chat.js keeps paging while it gets full pages of this size
+    private static final int SYNC_PAGE_SIZE = 500;
+    private static final int CONVERSATION_PAGE_SIZE = 50;
+    private static final int SEARCH_LIMIT = 50;
+    private static final int MAX_CONVERSATION_PAGE_SIZE = 200;
+    private static final int MESSAGE_SEARCH_PAGE_SIZE = 20;
+    private static final int MAX_MESSAGE_SEARCH_PAGE_SIZE = 100;
+    // Relevance pages are OFFSET based, deep pages get expensive
+    private static final int MAX_MESSAGE_SEARCH_OFFSET = 1000;
 
     public ChatService(ChatRepository chatRepository, UserRepository userRepository,
             SimpMessagingTemplate messagingTemplate, MessageSequenceGenerator sequenceGenerator,
-            ChannelRepository channelRepository) {
+            ChannelRepository channelRepository, MessageWriteBehindQueue writeBehindQueue,
+            SenderProfileResolver senderProfileResolver, RecentMessageCache recentMessageCache,
+            ChannelMembershipCache membershipCache, StompFanoutSender fanoutSender,
+            ChannelResolver channelResolver, ChannelActivityTracker activityTracker,
+            ChannelSearchIndex channelSearchIndex, MessageSearchIndex messageSearchIndex,
+            ChannelMembershipWriter membershipWriter, ChannelHistoryPurger historyPurger) {
         this.chatRepository = chatRepository;
         this.userRepository = userRepository;
         this.messagingTemplate = messagingTemplate;
         this.sequenceGenerator = sequenceGenerator;
         this.channelRepository = channelRepository;
+        this.writeBehindQueue = writeBehindQueue;
+        this.senderProfileResolver = senderProfileResolver;
+        this.recentMessageCache = recentMessageCache;
+        this.membershipCache = membershipCache;
+        this.fanoutSender = fanoutSender;
+        this.channelResolver = channelResolver;
+        this.activityTracker = activityTracker;
+        this.channelSearchIndex = channelSearchIndex;
+        this.messageSearchIndex = messageSearchIndex;
+        this.membershipWriter = membershipWriter;
+        this.historyPurger = historyPurger;
     }
 
-    @Transactional
-    public void addMessage(SendingMessageRequest messString) {
-        // Extract values from the new nested structure
+    /**
+     * Returns the channel a message goes to, creating the one-on-one channel
+     * on the first direct message.
+     */
+    public long resolveChannelId(SendingMessageRequest messString) {
         String senderId = messString.getSender().getUserId();
-        String content = messString.getSender().getContent();
-
         String receiverId = null;
         Long channelIdParam = null;
 
@@ -71,15 +129,34 @@ public class ChatService {
             receiverId = messString.getReceiver().getUserId();
             channelIdParam = messString.getReceiver().getChannelId();
         }
+        return determineChannelId(channelIdParam, senderId, receiverId);
+    }
+
+    /**
+     * Stores a message in a channel returned by {@link #resolveChannelId}
+     * and, once committed, fans it out to the channel. Sends should go
+     * through {@link MessageIngestService}, which serializes them per
+     * channel.
+     * 
+     * @return The stored message with its channel and sequence number
+     */
+    @Transactional
+    public Message addMessage(SendingMessageRequest messString, long channelId) {
+        String senderId = messString.getSender().getUserId();
+        String content = messString.getSender().getContent();
+        String receiverId = messString.getReceiver() != null ? messString.getReceiver().getUserId() : null;
 
-        // Determine the channel ID based on sender and receiver
-        long channelId = determineChannelId(channelIdParam, senderId, receiverId);
+        // The channel may have been deleted while the send waited in its lane
+        if (channelResolver.findById(channelId) == null) {
+            throw new RuntimeException("This group chat or receiver is not found!");
+        }
 
         // Generate the local sequence number for this channel
         long sequenceNumber = sequenceGenerator.generateMessageId(channelId);
 
-        // Generate composite ID (timestamp + sequence) for better time-sortability
-        long messageId = sequenceGenerator.generateCompositeMessageId(channelId, sequenceNumber);
+        // Globally unique ID (timestamp + node + counter); sequence numbers only
+        // are unique within a channel
+        long messageId = sequenceGenerator.generateCompositeMessageId();
 
         Message newMess = Message.builder()
                 .messageId(messageId)
@@ -91,9 +168,59 @@ public class ChatService {
                 .createdAt(Instant.now())
                 .build();
 
+        if (writeBehindQueue.isEnabled()) {
+            // Fan-out happens in handleMessagesFlushed once the row is in MySQL
+            writeBehindQueue.enqueue(newMess);
+            return newMess;
+        }
+
         chatRepository.save(newMess);
 
-        showMessage(channelId);
+        // Only publish what is committed, so caches and clients never see a rolled back message
+        afterCommit(() -> publishMessages(List.of(newMess)));
+        return newMess;
+    }
+
+    @EventListener
+    public void handleMessagesFlushed(MessagesFlushedEvent event) {
+        publishMessages(event.getMessages());
+    }
+
+    /**
+     * Adds persisted messages to the recent-message cache and fans them out
+     * to channel members.
+     */
+    private void publishMessages(List<Message> messages) {
+        for (Message message : messages) {
+            activityTracker.touch(message.getChannelId(), message.getCreatedAt());
+        }
+
+        messageSearchIndex.enqueue(messages);
+
+        List<MessageResponse> responses = toResponses(messages);
+        responses.forEach(recentMessageCache::append);
+
+        if (deltaFanout) {
+            responses.forEach(this::pushMessage);
+            return;
+        }
+        responses.stream()
+                .map(MessageResponse::getChannelId)
+                .distinct()
+                .forEach(this::showMessage);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 
     /**
@@ -105,71 +232,43 @@ public class ChatService {
         if (ChannelId == null && (receiver == null || receiver.isEmpty())) {
             throw new RuntimeException("This group chat or receiver is not found!");
         }
-        if (ChannelId != null) {
-            Optional<Channel> private_group_channelOpt = channelRepository.findById(ChannelId);
-
-            if (private_group_channelOpt.isPresent()) {
-                return ChannelId;
-            }
+        if (ChannelId != null && channelResolver.findById(ChannelId) != null) {
+            return ChannelId;
         }
         if (receiver != null && !receiver.isEmpty()) {
-            String oneOnOneChannel = sequenceGenerator.generateOneOnOneChannelId(sender, receiver);
-            Optional<Channel> private_group_channelOpt = channelRepository.findByName(oneOnOneChannel);
-            if (private_group_channelOpt.isPresent()) {
-                Channel existingChannel = private_group_channelOpt.get();
-                // Self-healing: Ensure members exist
-                return existingChannel.getId();
-            } else {
-                // Create new 1-on-1 channel
-                Channel newChannel = Channel.builder()
-                        .name(oneOnOneChannel)
-                        .counter(0)
-                        .createdAt(Instant.now())
-                        .build();
-
-                newChannel = channelRepository.save(newChannel);
-
-                // Add members to the channel
-                ChatMemmbers member1 = ChatMemmbers.builder()
-                        .channel(newChannel.getId())
-                        .user(UUID.fromString(sender))
-                        .build();
-
-                ChatMemmbers member2 = ChatMemmbers.builder()
-                        .channel(newChannel.getId())
-                        .user(UUID.fromString(receiver))
-                        .build();
-
-                entityManager.persist(member1);
-                entityManager.persist(member2);
-                // Ensure members are visible to subsequent queries
-                entityManager.flush();
-                return newChannel.getId();
-            }
+            // Looks up or race-safely creates the 1-on-1 channel with both members
+            return channelResolver.resolveDirect(sender, receiver);
         }
 
         throw new RuntimeException("This group chat or receiver is not found!");
     }
 
+    /**
+     * Sends a single new message to every member of its channel. Clients
+     * that missed pushes catch up through {@link #getNewMessages(Long, Long)}
+     * using the channel ID and sequence number carried by the message.
+     */
+    public void pushMessage(MessageResponse response) {
+        deliver(response.getChannelId(), response);
+    }
+
     public void showMessage(long channelId) {
         // Fetch latest 15 messages for the channel
-        Pageable pageable = PageRequest.of(0, 15);
-        List<Message> messages = chatRepository.findByChannelIdOrderBySequenceNumberDesc(channelId, pageable);
-
-        // Reverse to return in chronological order (oldest -> newest)
-        Collections.reverse(messages);
+        List<MessageResponse> responseMessages = getInitialMessages(channelId);
 
-        List<MessageResponse> responseMessages = messages.stream()
-                .map(this::convertToMessageResponse)
-                .collect(Collectors.toList());
-
-        // Find all members in the channel
-        List<ChatMemmbers> members = channelRepository.findMembersByChannelId(channelId);
+        deliver(channelId, responseMessages);
+    }
 
-        // Send to each member
-        for (ChatMemmbers member : members) {
-            messagingTemplate.convertAndSend("/queue/chat-user-" + member.getUser(), responseMessages);
+    /**
+     * Group channels publish once to their topic, which members subscribe to;
+     * one-on-one channels send to each member's own queue.
+     */
+    private void deliver(long channelId, Object payload) {
+        if (groupTopicFanout && channelResolver.isGroup(channelId)) {
+            messagingTemplate.convertAndSend(CHANNEL_TOPIC_PREFIX + channelId, payload);
+            return;
         }
+        fanoutSender.sendToEach("/queue/chat-user-", Arrays.asList(membershipCache.members(channelId)), payload);
     }
 
     /**
@@ -179,10 +278,42 @@ public class ChatService {
      * @return List of messages ordered by sequence number
      */
     public List<MessageResponse> getChannelMessages(Long channelId) {
-        return chatRepository.findByChannelIdOrderBySequenceNumberAsc(channelId)
-                .stream()
-                .map(this::convertToMessageResponse)
-                .collect(Collectors.toList());
+        return toResponses(chatRepository.findByChannelIdOrderBySequenceNumberAsc(channelId));
+    }
+
+    /**
+     * Walks a channel's history in sequence order, one keyset page at a time,
+     * so the full history never has to sit in memory.
+     * 
+     * @param channelId    The channel identifier
+     * @param fromSequence First sequence number to include
+     * @param limit        Maximum number of messages, or null for no limit
+     * @param pageConsumer Receives each converted page in order
+     */
+    public void streamChannelMessages(Long channelId, long fromSequence, Integer limit,
+            Consumer<List<MessageResponse>> pageConsumer) {
+        long cursor = fromSequence - 1;
+        long remaining = limit != null ? limit : Long.MAX_VALUE;
+
+        while (remaining > 0) {
+            int pageSize = (int) Math.min(EXPORT_PAGE_SIZE, remaining);
+            List<Message> page = chatRepository.findByChannelIdAndSequenceNumberGreaterThanOrderBySequenceNumberAsc(
+                    channelId, cursor, PageRequest.of(0, pageSize));
+            if (page.isEmpty()) {
+                break;
+            }
+
+            pageConsumer.accept(toResponses(page));
+
+            cursor = page.get(page.size() - 1).getSequenceNumber();
+            remaining -= page.size();
+            // Don't let exported entities pile up in an open-in-view persistence context
+            entityManager.clear();
+
+            if (page.size() < pageSize) {
+                break;
+            }
+        }
     }
 
     /**
@@ -200,33 +331,41 @@ public class ChatService {
 
     /**
      * Get new messages in a channel after a specific sequence number.
-     * Useful for message synchronization and pagination.
+     * Useful for message synchronization and pagination. Returns at most
+     * {@value #SYNC_PAGE_SIZE} messages; call again from the last sequence
+     * number to continue.
      * 
      * @param channelId     The channel identifier
      * @param afterSequence The sequence number after which to fetch messages
      * @return List of new messages
      */
     public List<MessageResponse> getNewMessages(Long channelId, Long afterSequence) {
-        return chatRepository.findByChannelIdAndSequenceNumberGreaterThanOrderBySequenceNumberAsc(
-                channelId, afterSequence)
-                .stream()
-                .map(this::convertToMessageResponse)
-                .collect(Collectors.toList());
+        List<MessageResponse> cached = recentMessageCache.after(channelId, afterSequence, SYNC_PAGE_SIZE);
+        if (cached != null) {
+            return cached;
+        }
+        return toResponses(chatRepository.findByChannelIdAndSequenceNumberGreaterThanOrderBySequenceNumberAsc(
+                channelId, afterSequence, PageRequest.of(0, SYNC_PAGE_SIZE)));
     }
 
     /**
      * Get initial messages (latest 15) for a channel.
      */
     public List<MessageResponse> getInitialMessages(Long channelId) {
-        Pageable pageable = PageRequest.of(0, 15);
+        List<MessageResponse> cached = recentMessageCache.latest(channelId, INITIAL_PAGE_SIZE);
+        if (cached != null) {
+            return cached;
+        }
+
+        Pageable pageable = PageRequest.of(0, INITIAL_PAGE_SIZE);
         List<Message> messages = chatRepository.findByChannelIdOrderBySequenceNumberDesc(channelId, pageable);
 
         // Reverse to return in chronological order (oldest -> newest)
-        java.util.Collections.reverse(messages);
+        Collections.reverse(messages);
 
-        return messages.stream()
-                .map(this::convertToMessageResponse)
-                .collect(Collectors.toList());
+        List<MessageResponse> responses = toResponses(messages);
+        recentMessageCache.seed(channelId, responses, messages.size() < INITIAL_PAGE_SIZE);
+        return responses;
     }
 
     /**
@@ -238,48 +377,81 @@ public class ChatService {
                 channelId, beforeSequence, pageable);
 
         // Reverse to return in chronological order (oldest -> newest)
-        java.util.Collections.reverse(messages);
+        Collections.reverse(messages);
 
-        return messages.stream()
-                .map(this::convertToMessageResponse)
-                .collect(Collectors.toList());
+        return toResponses(messages);
     }
 
     /**
-     * Helper method to convert Message entity to MessageResponse DTO.
+     * Full-text search in one channel the user is a member of. Messages
+     * become searchable shortly after they are sent.
+     * 
+     * @param order          {@code RELEVANCE} (default) or {@code RECENT}
+     * @param beforeSequence For {@code RECENT}: continue below this sequence
+     * @param offset         For {@code RELEVANCE}: results to skip
      */
-    private MessageResponse convertToMessageResponse(Message mess) {
-        String senderId = mess.getSender();
-        String senderName = "Unknown";
-        String senderAvatar = "";
-
-        if (senderId != null) {
-            try {
-                Optional<User> userOpt = userRepository.findById(UUID.fromString(senderId));
-                if (userOpt.isPresent()) {
-                    User user = userOpt.get();
-                    senderName = user.getName() != null ? user.getName() : user.getUsername();
-                    senderAvatar = user.getPicture();
-                }
-            } catch (IllegalArgumentException e) {
-                // Handle invalid UUID string if necessary
-            }
+    public MessageSearchResponse searchMessages(Long channelId, UUID userId, String query,
+            MessageSearchIndex.Order order, Long beforeSequence, Integer offset, Integer limit) {
+        if (!Arrays.asList(membershipCache.members(channelId)).contains(userId)) {
+            throw new RuntimeException("You are not a member of this channel");
+        }
+        MessageSearchIndex.Order sort = order != null ? order : MessageSearchIndex.Order.RELEVANCE;
+        int pageSize = limit == null ? MESSAGE_SEARCH_PAGE_SIZE
+                : Math.min(Math.max(limit, 1), MAX_MESSAGE_SEARCH_PAGE_SIZE);
+        int skip = offset == null ? 0 : Math.min(Math.max(offset, 0), MAX_MESSAGE_SEARCH_OFFSET);
+
+        // One extra row tells whether there is a next page
+        List<Message> found = messageSearchIndex.search(channelId, query, sort, beforeSequence, skip, pageSize + 1);
+        boolean more = found.size() > pageSize;
+        List<Message> page = more ? found.subList(0, pageSize) : found;
+
+        MessageSearchResponse response = new MessageSearchResponse(toResponses(page), null, null);
+        if (more && sort == MessageSearchIndex.Order.RECENT) {
+            response.setNextBeforeSequence(page.get(page.size() - 1).getSequenceNumber());
+        } else if (more && skip + pageSize <= MAX_MESSAGE_SEARCH_OFFSET) {
+            response.setNextOffset(skip + pageSize);
         }
+        return response;
+    }
+
+    /**
+     * Converts a page of messages, resolving all distinct senders at once.
+     */
+    private List<MessageResponse> toResponses(List<Message> messages) {
+        Map<String, SenderProfile> profiles = senderProfileResolver.resolve(messages);
+        List<MessageResponse> responses = new ArrayList<>(messages.size());
+        for (Message mess : messages) {
+            SenderProfile profile = mess.getSender() != null ? profiles.get(mess.getSender()) : null;
+            responses.add(convertToMessageResponse(mess, profile != null ? profile : SenderProfile.UNKNOWN));
+        }
+        return responses;
+    }
 
+    /**
+     * Helper method to convert Message entity to MessageResponse DTO.
+     */
+    private MessageResponse convertToMessageResponse(Message mess, SenderProfile sender) {
         return new MessageResponse(
                 mess.getMessageId(),
                 mess.getContent(),
-                senderId,
-                senderName,
-                senderAvatar,
+                mess.getSender(),
+                sender.name(),
+                sender.picture(),
                 mess.getSequenceNumber(),
                 mess.getCreatedAt() != null ? mess.getCreatedAt().toString() : "",
                 mess.getChannelId());
     }
 
     public List<ChannelSearchResponse> searchChannels(String query) {
+        List<ChannelSearchResponse> indexed = channelSearchIndex.search(query, SEARCH_LIMIT);
+        if (indexed != null) {
+            return indexed;
+        }
+        // Index still loading
         return channelRepository.findByNameContainingIgnoreCase(query)
                 .stream()
+                .filter(channel -> channel.getType() == ChannelType.GROUP)
+                .limit(SEARCH_LIMIT)
                 .map(channel -> ChannelSearchResponse.builder()
                         .id(channel.getId())
                         .name(channel.getName())
@@ -292,141 +464,105 @@ public class ChatService {
         User creator = userRepository.findById(UUID.fromString(request.getCreatorId()))
                 .orElseThrow(() -> new RuntimeException("Creator not found"));
 
+        Instant now = Instant.now();
         Channel newChannel = Channel.builder()
                 .name(request.getName())
+                .type(ChannelType.GROUP)
                 .creatorId(creator)
-                .counter(0)
-                .createdAt(Instant.now())
+                .counter(sequenceGenerator.initialCounter())
+                .createdAt(now)
                 .build();
 
         Channel savedChannel = channelRepository.save(newChannel);
+        // Only once the channel exists for good, a rollback must not leave a block behind
+        afterCommit(() -> sequenceGenerator.seedChannel(savedChannel.getId()));
+        channelResolver.created(savedChannel.getId());
 
-        // Add creator as a member
-        ChatMemmbers creatorMember = ChatMemmbers.builder()
-                .channel(savedChannel.getId())
-                .user(creator.getId())
-                .build();
-        entityManager.persist(creatorMember);
-
-        // Add other members
+        // Creator first, then the other members; invalid IDs are ignored
+        List<String> memberIds = new ArrayList<>();
+        memberIds.add(creator.getId().toString());
         if (request.getMemberIds() != null) {
-            for (String memberId : request.getMemberIds()) {
-                try {
-                    UUID userId = UUID.fromString(memberId);
-                    // Skip if creator is already in the list
-                    if (userId.equals(creator.getId()))
-                        continue;
-
-                    ChatMemmbers member = ChatMemmbers.builder()
-                            .channel(savedChannel.getId())
-                            .user(userId)
-                            .build();
-                    entityManager.persist(member);
-                } catch (IllegalArgumentException e) {
-                    // Ignore invalid UUIDs
-                }
-            }
+            memberIds.addAll(request.getMemberIds());
         }
+        ChannelMembershipWriter.Result result = membershipWriter.addMembers(savedChannel.getId(),
+                ChannelType.GROUP, memberIds, now);
 
-        entityManager.flush();
+        membershipCache.invalidate(savedChannel.getId(), result.added());
+        afterCommit(() -> channelSearchIndex.put(savedChannel.getId(), savedChannel.getName()));
 
         // Notify all members (creator + added members)
-        ChannelSearchResponse channelInfo = ChannelSearchResponse.builder()
-                .id(savedChannel.getId())
-                .name(savedChannel.getName())
-                .build();
-
-        Map<String, Object> notification = new HashMap<>();
-        notification.put("type", "CHANNEL_ADDED");
-        notification.put("channel", channelInfo);
-
-        // Notify creator
-        messagingTemplate.convertAndSend("/queue/updates-user-" + creator.getId(), notification);
-
-        // Notify other members
-        if (request.getMemberIds() != null) {
-            for (String memberId : request.getMemberIds()) {
-                try {
-                    UUID userId = UUID.fromString(memberId);
-                    if (!userId.equals(creator.getId())) {
-                        messagingTemplate.convertAndSend("/queue/updates-user-" + userId, notification);
-                    }
-                } catch (IllegalArgumentException e) {
-                    // Ignore
-                }
-            }
-        }
+        notifyChannelAdded(savedChannel, result.added());
 
         return savedChannel;
     }
 
     public List<ChannelSearchResponse> getUserChannels(UUID userId) {
-        return channelRepository.findChannelsByUserId(userId).stream()
-                .filter(c -> !c.getName().startsWith("1on1:"))
-                .map(c -> ChannelSearchResponse.builder()
-                        .id(c.getId())
-                        .name(c.getName())
+        return channelRepository.findChannelsByUserIdAndType(userId, ChannelType.GROUP);
+    }
+
+    /**
+     * One page of the user's one-on-one conversations, most recent activity
+     * first, read in a single query.
+     *
+     * @param before          Last activity of the previous page's last row, or
+     *                        {@code null} for the first page
+     * @param beforeChannelId Channel ID of the previous page's last row
+     */
+    public List<ConversationResponse> getUserConversations(UUID userId, Instant before, Long beforeChannelId,
+            Integer limit) {
+        int pageSize = limit == null ? CONVERSATION_PAGE_SIZE : Math.min(Math.max(limit, 1), MAX_CONVERSATION_PAGE_SIZE);
+        List<ConversationRow> rows = channelRepository.findConversations(userId.toString(), before,
+                beforeChannelId == null ? Long.MAX_VALUE : beforeChannelId, pageSize);
+
+        return rows.stream()
+                .map(row -> ConversationResponse.builder()
+                        .id(UUID.fromString(row.getUserId()))
+                        .username(row.getUsername())
+                        .name(row.getName())
+                        .picture(row.getPicture())
+                        .channelId(row.getChannelId())
+                        .lastSequenceNumber(row.getLastSequence())
+                        .lastMessage(row.getLastContent())
+                        .lastSender(row.getLastSender())
+                        .lastActivityAt(row.getLastActivityAt())
+                        .unreadCount(row.getUnreadCount() != null ? row.getUnreadCount() : 0)
                         .build())
                 .collect(Collectors.toList());
     }
 
-    public List<UserSearchResponse> getUserConversations(UUID userId) {
-        List<Channel> allChannels = channelRepository.findChannelsByUserId(userId);
-        List<UserSearchResponse> conversations = new java.util.ArrayList<>();
-
-        for (Channel channel : allChannels) {
-            if (channel.getName().startsWith("1on1:")) {
-                // Extract the other user ID from the channel name
-                // Format: "1on1:userId1:userId2"
-                String[] parts = channel.getName().split(":");
-                if (parts.length == 3) {
-                    String otherUserIdStr = parts[1].equals(userId.toString()) ? parts[2] : parts[1];
-                    try {
-                        UUID otherUserId = UUID.fromString(otherUserIdStr);
-                        userRepository.findById(otherUserId).ifPresent(user -> {
-                            conversations.add(UserSearchResponse.builder()
-                                    .id(user.getId())
-                                    .username(user.getUsername())
-                                    .name(user.getName())
-                                    .picture(user.getPicture())
-                                    .build());
-                        });
-                    } catch (IllegalArgumentException e) {
-                        // Ignore invalid UUIDs
-                    }
-                }
-            }
-        }
-        return conversations;
+    /**
+     * Moves the member's read marker forward; it never moves back.
+     */
+    public void markRead(Long channelId, UUID userId, long sequenceNumber) {
+        channelRepository.markRead(channelId, userId.toString(), sequenceNumber);
     }
 
     @Transactional
-    public void addMembersToChannel(Long channelId, List<String> memberIds) {
+    public AddMembersResponse addMembersToChannel(Long channelId, List<String> memberIds) {
         Channel channel = channelRepository.findById(channelId)
                 .orElseThrow(() -> new RuntimeException("Channel not found"));
 
-        for (String memberId : memberIds) {
-            try {
-                UUID userId = UUID.fromString(memberId);
-
-                // Check if already a member
-                ChatMemmbers existingMember = entityManager.find(ChatMemmbers.class,
-                        new com.example.security.model.Chatting.ChatMemberId(channelId, userId));
-
-                if (existingMember == null) {
-                    ChatMemmbers member = ChatMemmbers.builder()
-                            .channel(channel.getId())
-                            .user(userId)
-                            .build();
-                    entityManager.persist(member);
-                }
-            } catch (IllegalArgumentException e) {
-                // Ignore invalid UUIDs
-            }
+        // One diff query and batched inserts, however many IDs are sent
+        ChannelMembershipWriter.Result result = membershipWriter.addMembers(channelId, channel.getType(),
+                memberIds, Instant.now());
+        if (!result.added().isEmpty()) {
+            membershipCache.invalidate(channelId, result.added());
         }
-        entityManager.flush();
 
-        // Notify new members
+        // Notify new members only
+        notifyChannelAdded(channel, result.added());
+
+        return new AddMembersResponse(result.added().size(), result.skipped(), result.invalid());
+    }
+
+    /**
+     * Tells new members about a channel once their membership is committed.
+     * The notification is serialized once for all of them.
+     */
+    private void notifyChannelAdded(Channel channel, List<UUID> recipients) {
+        if (recipients.isEmpty()) {
+            return;
+        }
         ChannelSearchResponse channelInfo = ChannelSearchResponse.builder()
                 .id(channel.getId())
                 .name(channel.getName())
@@ -436,18 +572,7 @@ public class ChatService {
         notification.put("type", "CHANNEL_ADDED");
         notification.put("channel", channelInfo);
 
-        for (String memberId : memberIds) {
-            try {
-                UUID userId = UUID.fromString(memberId);
-                // Only notify if they were actually added (or just notify anyway to be
-                // safe/idempotent)
-                // Ideally we track who was added, but notifying existing members is harmless
-                // (they just ignore or update)
-                messagingTemplate.convertAndSend("/queue/updates-user-" + userId, notification);
-            } catch (IllegalArgumentException e) {
-                // Ignore
-            }
-        }
+        afterCommit(() -> fanoutSender.sendToEach("/queue/updates-user-", recipients, notification));
     }
 
     @Transactional
@@ -471,6 +596,7 @@ public class ChatService {
         if (member != null) {
             entityManager.remove(member);
             entityManager.flush();
+            membershipCache.invalidate(channelId, List.of(userId));
 
             // Notify user to remove from sidebar
             Map<String, Object> notification = new HashMap<>();
@@ -492,30 +618,29 @@ public class ChatService {
         }
 
         // Get all members to notify them later
-        List<ChatMemmbers> members = channelRepository.findMembersByChannelId(channelId);
+        List<UUID> members = channelRepository.findMemberIdsByChannelId(channelId);
 
-        // Delete all members first (if cascade is not set)
-        // JPQL: DELETE FROM ChatMemmbers c WHERE c.channel = :id
-        // Since we are in a transaction, we can just delete the channel if
-        // CascadeType.ALL is set on members list in Channel entity.
-        // But Channel entity doesn't seem to have the OneToMany list mapped.
-        // So we must delete members manually.
-
-        for (ChatMemmbers m : members) {
-            entityManager.remove(m);
-        }
-
-        // Delete channel
+        // Members go in one set-based DELETE; the message history is
+        // removed afterwards in small chunks, off the request
+        channelRepository.deleteMembersByChannelId(channelId);
         channelRepository.delete(channel);
+        historyPurger.markPending(channelId);
         entityManager.flush();
+        channelResolver.invalidate(channelId, channel.getName());
+        // A rollback keeps the channel, so its block, ring and members stay too
+        afterCommit(() -> {
+            sequenceGenerator.releaseChannel(channelId);
+            recentMessageCache.evict(channelId);
+            membershipCache.invalidateCommitted(channelId, List.of());
+            channelSearchIndex.remove(channelId);
+            historyPurger.purge(channelId);
+        });
 
         // Notify all members
         Map<String, Object> notification = new HashMap<>();
         notification.put("type", "CHANNEL_REMOVED");
         notification.put("channelId", channelId);
 
-        for (ChatMemmbers member : members) {
-            messagingTemplate.convertAndSend("/queue/updates-user-" + member.getUser(), notification);
-        }
+        fanoutSender.sendToEach("/queue/updates-user-", members, notification);
     }
 }
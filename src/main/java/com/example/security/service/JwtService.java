@@ -1,20 +1,27 @@
 package com.example.security.service;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.Function;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import com.example.security.dto.ValidatedToken;
+import com.example.security.model.User;
+
 
 
 @Service
@@ -27,6 +34,42 @@ public class JwtService {
   @Value("${application.security.jwt.refresh-token.expiration}")
   private long refreshExpiration;
 
+  // Derived once: decoding the secret and building a parser per call showed
+  // up on every authenticated request. The parser is immutable and thread-safe.
+  private Key signInKey;
+  private JwtParser parser;
+
+  @PostConstruct
+  void init() {
+    signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+    parser = Jwts.parserBuilder().setSigningKey(signInKey).build();
+  }
+
+  /**
+   * Verifies the signature and expiry of a token and returns its claims.
+   * Parse once and read everything needed from the result.
+   *
+   * @throws JwtException if the token is malformed, tampered with or expired
+   */
+  public Claims parseAndValidate(String token) {
+    return parser.parseClaimsJws(token).getBody();
+  }
+
+  /**
+   * Parses a token once into a {@link ValidatedToken}, or returns empty if
+   * it is malformed, tampered with or expired.
+   */
+  public Optional<ValidatedToken> tryValidate(String token) {
+    if (token == null || token.isBlank()) {
+      return Optional.empty();
+    }
+    try {
+      return Optional.of(ValidatedToken.of(token, parseAndValidate(token)));
+    } catch (JwtException | IllegalArgumentException e) {
+      return Optional.empty();
+    }
+  }
+
   public String extractUsername(String token) {
     return extractClaim(token, Claims::getSubject);
   }
@@ -36,8 +79,14 @@ public class JwtService {
     return claimsResolver.apply(claims);
   }
 
+  /**
+   * Issues an access token. Besides the username it carries the user ID,
+   * role, display name, picture and provider, so the authentication filter
+   * can rebuild the principal without loading the user when
+   * {@code application.security.jwt.stateless-principal} is on.
+   */
   public String generateToken(UserDetails userDetails) {
-    return generateToken(new HashMap<>(), userDetails);
+    return generateToken(principalClaims(userDetails), userDetails);
   }
 
   public String generateToken(
@@ -66,29 +115,41 @@ public class JwtService {
   }
 
   public boolean isTokenValid(String token, UserDetails userDetails) {
-    final String username = extractUsername(token);
-    return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+    return tryValidate(token).map(validated -> isTokenValid(validated, userDetails)).orElse(false);
   }
 
-  private boolean isTokenExpired(String token) {
-    return extractExpiration(token).before(new Date());
+  private static Map<String, Object> principalClaims(UserDetails userDetails) {
+    Map<String, Object> claims = new HashMap<>();
+    if (userDetails instanceof User user) {
+      putIfPresent(claims, ValidatedToken.CLAIM_USER_ID, user.getId());
+      putIfPresent(claims, ValidatedToken.CLAIM_ROLE, user.getRole() != null ? user.getRole().name() : null);
+      putIfPresent(claims, ValidatedToken.CLAIM_NAME, user.getName());
+      putIfPresent(claims, ValidatedToken.CLAIM_PICTURE, user.getPicture());
+      putIfPresent(claims, ValidatedToken.CLAIM_PROVIDER, user.getProvider());
+    }
+    // Other callers get a plain token; the filter then loads the user
+    return claims;
   }
 
-  private Date extractExpiration(String token) {
-    return extractClaim(token, Claims::getExpiration);
+  private static void putIfPresent(Map<String, Object> claims, String name, Object value) {
+    if (value != null) {
+      claims.put(name, value.toString());
+    }
+  }
+
+  /**
+   * Checks an already validated token against a user without parsing it
+   * again.
+   */
+  public boolean isTokenValid(ValidatedToken token, UserDetails userDetails) {
+    return token.subject() != null && token.subject().equals(userDetails.getUsername()) && !token.isExpired();
   }
 
   private Claims extractAllClaims(String token) {
-    return Jwts
-        .parserBuilder()
-        .setSigningKey(getSignInKey())
-        .build()
-        .parseClaimsJws(token)
-        .getBody();
+    return parseAndValidate(token);
   }
 
   private Key getSignInKey() {
-    byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-    return Keys.hmacShaKeyFor(keyBytes);
+    return signInKey;
   }
 }
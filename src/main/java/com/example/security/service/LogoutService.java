@@ -1,8 +1,15 @@
 package com.example.security.service;
 
+import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+
+import com.example.security.dto.UserPrincipal;
+import com.example.security.model.Authority.Token;
+import com.example.security.repository.TokenRepository;
+import com.example.security.repository.UserRepository;
+
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.logout.LogoutHandler;
@@ -12,11 +19,48 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class LogoutService implements LogoutHandler {
 
+  private final TokenRepository tokenRepository;
+  private final UserRepository userRepository;
+  private final TokenRevocationChecker revocationChecker;
+
   @Override
   public void logout(
       HttpServletRequest request,
       HttpServletResponse response,
       Authentication authentication) {
+    String jwt = accessToken(request);
+    if (jwt != null) {
+      revoke(jwt, authentication);
+    }
     SecurityContextHolder.clearContext();
   }
+
+  // Stateless principals are only checked against the tokens table, so the
+  // access token must be recorded as revoked there, even if it never was stored
+  private void revoke(String jwt, Authentication authentication) {
+    String digest = Token.digest(jwt);
+    Token token = tokenRepository.findByToken(digest).orElseGet(() -> {
+      Token created = Token.builder().token(digest).build();
+      if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal principal) {
+        created.setUser(userRepository.getReferenceById(principal.getId()));
+      }
+      return created;
+    });
+    token.setRevoked(true);
+    token.setExpired(true);
+    tokenRepository.save(token);
+    revocationChecker.forget(jwt);
+  }
+
+  private String accessToken(HttpServletRequest request) {
+    if (request.getCookies() == null) {
+      return null;
+    }
+    for (Cookie cookie : request.getCookies()) {
+      if ("access_token".equals(cookie.getName())) {
+        return cookie.getValue();
+      }
+    }
+    return null;
+  }
 }
@@ -0,0 +1,94 @@
+package com.example.security.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.security.model.Chatting.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Local append-only file holding messages that were acknowledged but may not
+ * be in MySQL yet. One JSON document per line; replayed on startup and
+ * truncated whenever the write-behind buffer has been fully flushed.
+ */
+@Slf4j
+public class MessageAppendLog {
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+    private final boolean fsync;
+    private FileChannel channel;
+
+    public MessageAppendLog(Path path, ObjectMapper objectMapper, boolean fsync) {
+        this.path = path;
+        this.objectMapper = objectMapper;
+        this.fsync = fsync;
+    }
+
+    public synchronized void open() throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    public synchronized void append(Message message) throws IOException {
+        byte[] line = (objectMapper.writeValueAsString(message) + "\n").getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.wrap(line);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (fsync) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Reads back every complete entry. A torn last line from a crash is
+     * skipped.
+     */
+    public synchronized List<Message> readAll() throws IOException {
+        List<Message> messages = new ArrayList<>();
+        if (!Files.exists(path)) {
+            return messages;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    messages.add(objectMapper.readValue(line, Message.class));
+                } catch (IOException e) {
+                    log.warn("Skipping unreadable append log entry");
+                }
+            }
+        }
+        return messages;
+    }
+
+    public synchronized void truncate() throws IOException {
+        channel.truncate(0);
+        if (fsync) {
+            channel.force(false);
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
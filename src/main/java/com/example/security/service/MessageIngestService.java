@@ -0,0 +1,109 @@
+package com.example.security.service;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import com.example.security.dto.MessageReceipt;
+import com.example.security.dto.SendingMessageRequest;
+import com.example.security.model.Chatting.Message;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Single entry point for sending messages, over HTTP or STOMP.
+ *
+ * Every send runs in the lane of its channel: sequence assignment,
+ * persistence and fan-out of one channel happen one message at a time, so
+ * sequence order, commit order and delivery order always agree. Different
+ * channels run in parallel. Sends over STOMP don't hold the inbound channel
+ * thread; the sender gets a {@link MessageReceipt} on
+ * {@code /queue/receipts-user-{id}} with the assigned sequence number, or
+ * the reason the message was rejected.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MessageIngestService {
+
+    public static final String RECEIPT_QUEUE_PREFIX = "/queue/receipts-user-";
+
+    private final ChatService chatService;
+    private final ChannelMailboxExecutor mailboxes;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    /**
+     * Queues a message in its channel's lane.
+     *
+     * @throws RejectedExecutionException when too many messages are pending
+     */
+    public CompletableFuture<Message> send(SendingMessageRequest request) {
+        long channelId = chatService.resolveChannelId(request);
+        return mailboxes.submit(channelId, () -> chatService.addMessage(request, channelId));
+    }
+
+    /**
+     * Sends a message and waits until it is stored, for callers that answer
+     * synchronously.
+     */
+    public Message sendAndWait(SendingMessageRequest request) {
+        try {
+            return send(request).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Sends a message from the connected user and reports the outcome with a
+     * receipt instead of waiting for it.
+     */
+    public void ingest(SendingMessageRequest request, UUID senderId) {
+        if (request.getSender() == null) {
+            request.setSender(new SendingMessageRequest.Sender());
+        }
+        // The authenticated session decides who is sending, not the payload
+        request.getSender().setUserId(senderId.toString());
+
+        try {
+            send(request).whenComplete((message, error) -> {
+                if (error != null) {
+                    reject(request, senderId, error);
+                } else {
+                    accept(request, senderId, message);
+                }
+            });
+        } catch (RuntimeException e) {
+            // Unknown channel or receiver, or too many pending messages
+            reject(request, senderId, e);
+        }
+    }
+
+    private void accept(SendingMessageRequest request, UUID senderId, Message message) {
+        messagingTemplate.convertAndSend(RECEIPT_QUEUE_PREFIX + senderId, MessageReceipt.builder()
+                .clientMessageId(request.getClientMessageId())
+                .status(MessageReceipt.Status.ACCEPTED)
+                .channelId(message.getChannelId())
+                .messageId(message.getMessageId())
+                .sequenceNumber(message.getSequenceNumber())
+                .build());
+    }
+
+    private void reject(SendingMessageRequest request, UUID senderId, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        log.warn("Rejected message from {}: {}", senderId, cause.getMessage());
+        messagingTemplate.convertAndSend(RECEIPT_QUEUE_PREFIX + senderId, MessageReceipt.builder()
+                .clientMessageId(request.getClientMessageId())
+                .status(MessageReceipt.Status.REJECTED)
+                .error(cause.getMessage())
+                .build());
+    }
+}
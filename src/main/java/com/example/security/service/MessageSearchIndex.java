@@ -0,0 +1,362 @@
+package com.example.security.service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import com.example.security.model.Chatting.Message;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Full-text search over message content, backed by a MySQL FULLTEXT index on
+ * the {@code message_search} side table.
+ *
+ * Committed messages are handed to {@link #enqueue(List)}, which only offers
+ * them to a bounded buffer; a single indexer thread writes them in multi-row
+ * INSERT IGNOREs. When the buffer is full messages are skipped rather than
+ * blocking the caller, and the indexer later catches up by scanning
+ * {@code messages} for rows missing from the index. The same scan runs at
+ * startup from a persisted high-water mark, which the indexer advances while
+ * nothing is left to catch up.
+ */
+@Slf4j
+@Service
+public class MessageSearchIndex {
+
+    public enum Order {
+        RELEVANCE, RECENT
+    }
+
+    private static final String INSERT_PREFIX = "INSERT IGNORE INTO message_search "
+            + "(message_id, channel_id, sequence_number, content) VALUES ";
+    private static final String ROW_PLACEHOLDER = "(?, ?, ?, ?)";
+
+    private static final String SELECT_MESSAGE = "SELECT m.message_id, m.channel_id, m.sequence_number, "
+            + "m.content, m.sender, m.receiver, m.created_at FROM message_search s "
+            + "JOIN messages m ON m.message_id = s.message_id ";
+    private static final String MATCH = "MATCH(s.content) AGAINST (? IN BOOLEAN MODE)";
+
+    // InnoDB's default innodb_ft_min_token_size; shorter words are not indexed
+    private static final int MIN_WORD_LENGTH = 3;
+    private static final int MAX_QUERY_WORDS = 8;
+    private static final long NOTHING_SKIPPED = Long.MAX_VALUE;
+
+    private static final int PROGRESS_ROW = 1;
+    private static final long PROGRESS_INTERVAL_MS = TimeUnit.MINUTES.toMillis(1);
+    // A message is assumed to be committed and enqueued within this long of
+    // its ID being generated, so the mark stays that far behind
+    private static final long SETTLE_MS = TimeUnit.MINUTES.toMillis(10);
+    private static final long MAX_RETRY_DELAY_MS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final RowMapper<Message> MESSAGE_MAPPER = MessageSearchIndex::mapMessage;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final BlockingQueue<Message> buffer;
+
+    // Smallest message ID skipped because the buffer was full, the catch-up
+    // scan starts there
+    private final AtomicLong skippedFrom = new AtomicLong(NOTHING_SKIPPED);
+
+    private final Counter skippedCounter;
+    private final Counter indexedCounter;
+    private final Timer queryTimer;
+
+    private volatile boolean running;
+    private Thread indexer;
+
+    public MessageSearchIndex(JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${application.chat.message-search.capacity:50000}") int capacity,
+            @Value("${application.chat.message-search.batch-size:500}") int batchSize,
+            @Value("${application.chat.message-search.flush-interval-ms:500}") long flushIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+
+        this.skippedCounter = Counter.builder("chat.message.search.skipped")
+                .description("Messages left to the catch-up scan because the index buffer was full")
+                .register(meterRegistry);
+        this.indexedCounter = Counter.builder("chat.message.search.indexed")
+                .register(meterRegistry);
+        this.queryTimer = Timer.builder("chat.message.search.query")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("chat.message.search.backlog", buffer, BlockingQueue::size)
+                .description("Committed messages not yet searchable")
+                .register(meterRegistry);
+    }
+
+    // Hibernate has created the table by now
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        indexer = new Thread(this::run, "chat-message-search");
+        indexer.setDaemon(true);
+        indexer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (indexer != null) {
+            indexer.interrupt();
+            indexer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    /**
+     * Queues committed messages for indexing. Never blocks.
+     */
+    public void enqueue(List<Message> messages) {
+        for (Message message : messages) {
+            if (message.getContent() == null || message.getContent().isBlank()) {
+                continue;
+            }
+            if (!buffer.offer(message)) {
+                skippedCounter.increment();
+                skippedFrom.accumulateAndGet(message.getMessageId(), Math::min);
+            }
+        }
+    }
+
+    /**
+     * Searches one channel. Every query word must appear in a message, as a
+     * word or a word prefix; words shorter than three characters are ignored.
+     * Relevance results are paged by offset, recent results by the sequence
+     * number of the last message received.
+     *
+     * @return Up to {@code limit} messages, empty when no word is searchable
+     */
+    public List<Message> search(long channelId, String query, Order order, Long beforeSequence, int offset,
+            int limit) {
+        String terms = booleanQuery(query);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        return queryTimer.record(() -> {
+            if (order == Order.RECENT) {
+                return jdbcTemplate.query(SELECT_MESSAGE
+                        + "WHERE s.channel_id = ? AND s.sequence_number < ? AND " + MATCH
+                        + " ORDER BY s.sequence_number DESC LIMIT ?",
+                        MESSAGE_MAPPER, channelId, beforeSequence != null ? beforeSequence : Long.MAX_VALUE,
+                        terms, limit);
+            }
+            return jdbcTemplate.query(SELECT_MESSAGE
+                    + "WHERE s.channel_id = ? AND " + MATCH
+                    + " ORDER BY " + MATCH + " DESC, s.sequence_number DESC LIMIT ? OFFSET ?",
+                    MESSAGE_MAPPER, channelId, terms, terms, limit, offset);
+        });
+    }
+
+    private void run() {
+        long indexedThrough = prepare();
+        if (indexedThrough < 0) {
+            return;
+        }
+        // Picked up by the first loop iteration
+        skippedFrom.accumulateAndGet(indexedThrough + 1, Math::min);
+
+        List<Message> batch = new ArrayList<>(batchSize);
+        long progressSavedAt = System.currentTimeMillis();
+        while (running) {
+            try {
+                Message first = buffer.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    buffer.drainTo(batch, batchSize - 1);
+                    insertSafely(batch);
+                    batch.clear();
+                }
+                long from = skippedFrom.getAndSet(NOTHING_SKIPPED);
+                if (from != NOTHING_SKIPPED) {
+                    try {
+                        catchUp(from - 1);
+                    } catch (RuntimeException e) {
+                        skippedFrom.accumulateAndGet(from, Math::min);
+                        throw e;
+                    }
+                }
+                long now = System.currentTimeMillis();
+                if (now - progressSavedAt >= PROGRESS_INTERVAL_MS) {
+                    progressSavedAt = now;
+                    saveProgress(now);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Message search indexer failed, continuing", e);
+            }
+        }
+    }
+
+    /**
+     * Creates the FULLTEXT index and reads the high-water mark, retrying with
+     * backoff until the database answers.
+     *
+     * @return The mark, or -1 when stopped first
+     */
+    private long prepare() {
+        long delayMs = flushIntervalMs;
+        while (running) {
+            try {
+                ensureFullTextIndex();
+                return indexedThrough();
+            } catch (RuntimeException e) {
+                log.error("Message search indexer could not start, retrying in {} ms", delayMs, e);
+            }
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return -1;
+            }
+            delayMs = Math.min(delayMs * 2, MAX_RETRY_DELAY_MS);
+        }
+        return -1;
+    }
+
+    private long indexedThrough() {
+        List<Long> marks = jdbcTemplate.queryForList(
+                "SELECT indexed_through FROM message_search_progress WHERE id = ?", Long.class, PROGRESS_ROW);
+        return marks.isEmpty() ? 0 : marks.get(0);
+    }
+
+    /**
+     * Advances the high-water mark to the IDs generated before the settle
+     * window, unless a catch-up is still pending. Messages still buffered or
+     * skipped later are newer than that.
+     */
+    private void saveProgress(long now) {
+        if (skippedFrom.get() != NOTHING_SKIPPED) {
+            return;
+        }
+        long mark = MessageSequenceGenerator.firstIdAt(now - SETTLE_MS) - 1;
+        jdbcTemplate.update("INSERT INTO message_search_progress (id, indexed_through) VALUES (?, ?) "
+                + "ON DUPLICATE KEY UPDATE indexed_through = GREATEST(indexed_through, VALUES(indexed_through))",
+                PROGRESS_ROW, mark);
+    }
+
+    private void ensureFullTextIndex() {
+        Integer existing = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.statistics WHERE table_schema = DATABASE() "
+                        + "AND table_name = 'message_search' AND index_name = 'ft_message_search_content'",
+                Integer.class);
+        if (existing == null || existing == 0) {
+            jdbcTemplate.execute("ALTER TABLE message_search ADD FULLTEXT INDEX ft_message_search_content (content)");
+            log.info("Created the message search FULLTEXT index");
+        }
+    }
+
+    /**
+     * Indexes every message after the given ID that is not indexed yet.
+     */
+    private void catchUp(long afterMessageId) {
+        long cursor = afterMessageId;
+        long indexed = 0;
+        while (running) {
+            List<Message> page = jdbcTemplate.query(
+                    "SELECT m.message_id, m.channel_id, m.sequence_number, m.content, m.sender, m.receiver, "
+                            + "m.created_at FROM messages m LEFT JOIN message_search s ON s.message_id = m.message_id "
+                            + "WHERE m.message_id > ? AND s.message_id IS NULL AND m.content IS NOT NULL "
+                            + "ORDER BY m.message_id LIMIT ?",
+                    MESSAGE_MAPPER, cursor, batchSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            insertSafely(page);
+            indexed += page.size();
+            cursor = page.get(page.size() - 1).getMessageId();
+        }
+        if (indexed > 0) {
+            log.info("Message search caught up on {} messages", indexed);
+        }
+    }
+
+    private void insertSafely(List<Message> rows) {
+        try {
+            StringBuilder sql = new StringBuilder(INSERT_PREFIX);
+            Object[] args = new Object[rows.size() * 4];
+            int i = 0;
+            for (Message message : rows) {
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                sql.append(ROW_PLACEHOLDER);
+                args[i++] = message.getMessageId();
+                args[i++] = message.getChannelId();
+                args[i++] = message.getSequenceNumber();
+                args[i++] = message.getContent();
+            }
+            jdbcTemplate.update(sql.toString(), args);
+            indexedCounter.increment(rows.size());
+        } catch (RuntimeException e) {
+            // Leave them to a catch-up scan rather than retrying in a loop
+            log.error("Failed to index {} messages", rows.size(), e);
+            rows.stream().mapToLong(Message::getMessageId).min()
+                    .ifPresent(min -> skippedFrom.accumulateAndGet(min, Math::min));
+        }
+    }
+
+    /**
+     * Turns free text into a boolean-mode query requiring every word as a
+     * prefix. Only letters and digits survive, so user input can never carry
+     * boolean operators.
+     */
+    static String booleanQuery(String query) {
+        if (query == null || query.isBlank()) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(query, Normalizer.Form.NFC).toLowerCase(Locale.ROOT);
+        StringBuilder terms = new StringBuilder();
+        int words = 0;
+        for (String word : normalized.split("[^\\p{L}\\p{N}]+")) {
+            if (word.length() < MIN_WORD_LENGTH || words == MAX_QUERY_WORDS) {
+                continue;
+            }
+            if (terms.length() > 0) {
+                terms.append(' ');
+            }
+            terms.append('+').append(word).append('*');
+            words++;
+        }
+        return terms.toString();
+    }
+
+    private static Message mapMessage(ResultSet rs, int row) throws SQLException {
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        return Message.builder()
+                .messageId(rs.getLong("message_id"))
+                .channelId(rs.getLong("channel_id"))
+                .sequenceNumber(rs.getLong("sequence_number"))
+                .content(rs.getString("content"))
+                .sender(rs.getString("sender"))
+                .receiver(rs.getString("receiver"))
+                .createdAt(createdAt != null ? createdAt.toInstant() : null)
+                .build();
+    }
+}
@@ -1,13 +1,12 @@
 package com.example.security.service;
 
-import org.springframework.stereotype.Service;
-
-import com.example.security.model.Chatting.Channel;
-import com.example.security.repository.ChatRepo.ChannelRepository;
-
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 
-import java.util.Optional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
 
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * Local sequence number generator for message IDs.
@@ -18,58 +17,88 @@ import java.util.Optional;
  * 2. IDs are sortable by time (new messages have higher IDs)
  * 3. Thread-safe generation for concurrent message creation
  */
+@Slf4j
 @Service
 public class MessageSequenceGenerator {
 
-    // Map to store sequence counters for each channel
-    private final ChannelRepository channelRepository;
+    static final int NODE_BITS = 10;
+    static final int COUNTER_BITS = 12;
+    static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+
+    private final ChannelSequenceAllocator sequenceAllocator;
+    private final long nodeId;
+
+    // (millis << COUNTER_BITS) | counter of the last message ID handed out
+    private final AtomicLong lastTick = new AtomicLong();
 
-    public MessageSequenceGenerator(ChannelRepository channelRepository) {
-        this.channelRepository = channelRepository;
+    public MessageSequenceGenerator(ChannelSequenceAllocator sequenceAllocator,
+            @Value("${application.chat.message-id.node-id:-1}") long nodeId) {
+        this.sequenceAllocator = sequenceAllocator;
+        if (nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Message ID node must be between 0 and " + MAX_NODE_ID);
+        }
+        if (nodeId < 0) {
+            nodeId = ThreadLocalRandom.current().nextLong(MAX_NODE_ID + 1);
+            log.warn("No application.chat.message-id.node-id set, using random node {}; "
+                    + "set a distinct value per node when running more than one", nodeId);
+        }
+        this.nodeId = nodeId;
     }
 
     /**
      * Generates the next message ID for a specific channel.
+     * Numbers come from {@link ChannelSequenceAllocator}: increasing in commit
+     * order, but they may skip values after a restart.
      * 
      * @param channelId The unique identifier for the conversation/channel
      * @return The next sequence number for this channel
      */
+    public long generateMessageId(long channelId) {
+        return sequenceAllocator.next(channelId);
+    }
 
-    public boolean updateMessageCounter(long channelId){
-        int updateMessageId = this.channelRepository.updateCounter(channelId);
-        return updateMessageId != 0 ? true: false;
-    }  
+    /**
+     * Counter value for a channel created on this node; pair it with
+     * {@link #seedChannel(long)} once the channel has an ID.
+     */
+    public long initialCounter() {
+        return sequenceAllocator.initialCounter();
+    }
 
-    public long generateMessageId(long channelId) {
-        // Get or create an atomic counter for this channel
-        boolean isUpdate =  updateMessageCounter(channelId);
-
-        if (isUpdate) {
-            Optional<Channel> channel = this.channelRepository.findById(channelId);
-            if (channel.isPresent()){
-                return channel.get().getCounter();
-            }
-            throw new RuntimeException("Channel not found!");
-        }
+    public void seedChannel(long channelId) {
+        sequenceAllocator.seed(channelId);
+    }
 
-        throw new RuntimeException("Can not generate new messageId!");
+    public void releaseChannel(long channelId) {
+        sequenceAllocator.release(channelId);
     }
 
     /**
-     * Generates a composite message ID that includes both timestamp and sequence.
-     * Format: timestamp (41 bits) + sequence (22 bits) = 63 bits total
+     * Generates a globally unique, time-sortable message ID.
+     * Format: timestamp (41 bits) + node (10 bits) + counter (12 bits) = 63 bits
      * 
-     * This provides better time-sortability and allows ~4 million messages per
-     * channel per millisecond.
+     * The counter is shared by all channels on this node, so channels sending
+     * in parallel never produce the same ID. When more than 4096 IDs are needed
+     * in one millisecond, or the clock steps back, IDs borrow from the next
+     * millisecond instead of repeating.
      * 
-     * @param channelId The unique identifier for the conversation/channel
-     * @return A composite ID combining timestamp and sequence number
+     * @return A composite ID combining timestamp, node and counter
      */
-    public long generateCompositeMessageId(long channelId, long sequence) {
-        long timestamp = System.currentTimeMillis();
+    public long generateCompositeMessageId() {
+        long now = System.currentTimeMillis() << COUNTER_BITS;
+        long tick = lastTick.updateAndGet(last -> Math.max(last + 1, now));
+
+        return ((tick >>> COUNTER_BITS) << (NODE_BITS + COUNTER_BITS))
+                | (nodeId << COUNTER_BITS)
+                | (tick & COUNTER_MASK);
+    }
 
-        // Shift timestamp left by 22 bits and add sequence (masked to 22 bits)
-        return (timestamp << 22) | (sequence & 0x3FFFFF);
+    /**
+     * Smallest message ID that can be generated at the given time on any node.
+     */
+    public static long firstIdAt(long epochMillis) {
+        return epochMillis << (NODE_BITS + COUNTER_BITS);
     }
 
     /**
@@ -0,0 +1,311 @@
+package com.example.security.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.example.security.event.MessagesFlushedEvent;
+import com.example.security.model.Chatting.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Opt-in write-behind persistence for chat messages.
+ *
+ * When enabled, {@link #enqueue(Message)} acknowledges a message as soon as it
+ * sits in a bounded in-memory buffer and in the local {@link MessageAppendLog}.
+ * A single flusher thread drains the buffer into multi-row INSERTs, committing
+ * every {@code batch-size} messages or {@code flush-interval-ms}, whichever
+ * comes first. A full buffer blocks senders up to {@code offer-timeout-ms} and
+ * then rejects the message.
+ *
+ * Logging a message and buffering it happen under the same lock as the
+ * flusher's check-and-truncate, so the log is only cleared when every entry
+ * in it has been committed.
+ */
+@Slf4j
+@Service
+public class MessageWriteBehindQueue {
+
+    private static final String INSERT_PREFIX = "INSERT INTO messages "
+            + "(message_id, channel_id, sequence_number, content, sender, receiver, created_at) VALUES ";
+    private static final String REPLAY_PREFIX = "INSERT IGNORE INTO messages "
+            + "(message_id, channel_id, sequence_number, content, sender, receiver, created_at) VALUES ";
+    private static final String ROW_PLACEHOLDER = "(?, ?, ?, ?, ?, ?, ?)";
+    private static final long MAX_RETRY_BACKOFF_MS = 5000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+
+    private final BlockingQueue<Message> buffer;
+    // Free buffer slots; taken before logging so a full buffer never leaves
+    // a rejected message in the log
+    private final Semaphore capacity;
+    private final Lock logLock = new ReentrantLock();
+    private final MessageAppendLog appendLog;
+
+    private final DistributionSummary batchSizeSummary;
+    private final Timer flushTimer;
+    private final Counter rejectedCounter;
+    private final Counter ignoredCounter;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public MessageWriteBehindQueue(JdbcTemplate jdbcTemplate,
+            ApplicationEventPublisher eventPublisher,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${application.chat.write-behind.enabled:false}") boolean enabled,
+            @Value("${application.chat.write-behind.capacity:10000}") int capacity,
+            @Value("${application.chat.write-behind.batch-size:500}") int batchSize,
+            @Value("${application.chat.write-behind.flush-interval-ms:50}") long flushIntervalMs,
+            @Value("${application.chat.write-behind.offer-timeout-ms:200}") long offerTimeoutMs,
+            @Value("${application.chat.write-behind.log-path:./data/message-append.log}") String logPath,
+            @Value("${application.chat.write-behind.fsync:false}") boolean fsync) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.capacity = new Semaphore(capacity);
+        this.appendLog = new MessageAppendLog(Path.of(logPath), objectMapper, fsync);
+
+        this.batchSizeSummary = DistributionSummary.builder("chat.writebehind.batch.size")
+                .description("Messages written per multi-row insert")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("chat.writebehind.flush.latency")
+                .description("Time to insert and commit one batch")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("chat.writebehind.rejected")
+                .description("Messages rejected because the buffer was full")
+                .register(meterRegistry);
+        this.ignoredCounter = Counter.builder("chat.writebehind.ignored")
+                .description("Acknowledged messages INSERT IGNORE dropped as duplicates")
+                .register(meterRegistry);
+        Gauge.builder("chat.writebehind.buffer.depth", buffer, BlockingQueue::size)
+                .description("Messages acknowledged but not yet flushed")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        appendLog.open();
+        replayAppendLog();
+
+        running = true;
+        flusher = new Thread(this::runFlusher, "chat-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("Write-behind message persistence enabled (batch {}, interval {} ms)", batchSize, flushIntervalMs);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        if (!enabled || flusher == null) {
+            return;
+        }
+        running = false;
+        flusher.interrupt();
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+        appendLog.close();
+    }
+
+    /**
+     * Accepts a message for asynchronous persistence. Returns once the message
+     * is buffered and logged locally.
+     */
+    public void enqueue(Message message) {
+        try {
+            if (!capacity.tryAcquire(offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                rejectedCounter.increment();
+                throw new RuntimeException("Message buffer is full, try again later");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while buffering message", e);
+        }
+
+        logLock.lock();
+        try {
+            try {
+                appendLog.append(message);
+            } catch (IOException e) {
+                // Still buffered: it will be flushed, only the crash safety net is missing
+                log.error("Failed to append message {} to the local log", message.getMessageId(), e);
+            }
+            // A slot is reserved, so this never fails
+            buffer.add(message);
+        } finally {
+            logLock.unlock();
+        }
+    }
+
+    private void runFlusher() {
+        List<Message> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            try {
+                collectBatch(batch);
+            } catch (InterruptedException e) {
+                // Shutting down: flush whatever is left without waiting
+                buffer.drainTo(batch, batchSize - batch.size());
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+            capacity.release(batch.size());
+            flushWithRetry(batch);
+            batch.clear();
+            truncateLogIfDrained();
+        }
+    }
+
+    private void collectBatch(List<Message> batch) throws InterruptedException {
+        Message first = buffer.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (batch.size() < batchSize) {
+            buffer.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                break;
+            }
+            Message next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flushWithRetry(List<Message> batch) {
+        long backoff = flushIntervalMs;
+        String prefix = INSERT_PREFIX;
+        while (true) {
+            try {
+                Timer.Sample sample = Timer.start();
+                int inserted = insert(prefix, batch);
+                sample.stop(flushTimer);
+                batchSizeSummary.record(batch.size());
+                if (inserted < batch.size()) {
+                    // Every message here was acknowledged to its sender
+                    ignoredCounter.increment(batch.size() - inserted);
+                    log.error("{} of {} acknowledged messages already existed and were dropped",
+                            batch.size() - inserted, batch.size());
+                }
+                break;
+            } catch (RuntimeException e) {
+                if (e instanceof DataIntegrityViolationException && prefix == INSERT_PREFIX) {
+                    // A replayed or colliding row would otherwise wedge the flusher forever
+                    log.warn("Batch of {} messages hit a constraint violation, inserting with IGNORE",
+                            batch.size(), e);
+                    prefix = REPLAY_PREFIX;
+                    continue;
+                }
+                // Keep the batch: the buffer fills up and senders get backpressure
+                log.error("Failed to flush {} buffered messages, retrying in {} ms", batch.size(), backoff, e);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    // Keep retrying during shutdown, the append log covers a hard stop
+                }
+                backoff = Math.min(backoff * 2, MAX_RETRY_BACKOFF_MS);
+            }
+        }
+
+        eventPublisher.publishEvent(new MessagesFlushedEvent(this, List.copyOf(batch)));
+    }
+
+    /**
+     * @return Rows actually inserted
+     */
+    private int insert(String prefix, List<Message> rows) {
+        StringBuilder sql = new StringBuilder(prefix);
+        Object[] args = new Object[rows.size() * 7];
+        int i = 0;
+        for (Message message : rows) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_PLACEHOLDER);
+            args[i++] = message.getMessageId();
+            args[i++] = message.getChannelId();
+            args[i++] = message.getSequenceNumber();
+            args[i++] = message.getContent();
+            args[i++] = message.getSender();
+            args[i++] = message.getReceiver();
+            args[i++] = message.getCreatedAt() != null ? Timestamp.from(message.getCreatedAt()) : null;
+        }
+        return jdbcTemplate.update(sql.toString(), args);
+    }
+
+    private void truncateLogIfDrained() {
+        // Senders log and buffer under this lock, so every logged message is
+        // either still in the buffer or was taken and committed by this
+        // thread: an empty buffer means an obsolete log.
+        logLock.lock();
+        try {
+            if (buffer.isEmpty()) {
+                appendLog.truncate();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to truncate the message append log", e);
+        } finally {
+            logLock.unlock();
+        }
+    }
+
+    private void replayAppendLog() throws IOException {
+        List<Message> pending = appendLog.readAll();
+        if (pending.isEmpty()) {
+            return;
+        }
+        int inserted = 0;
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            inserted += insert(REPLAY_PREFIX, pending.subList(from, Math.min(from + batchSize, pending.size())));
+        }
+        // Entries committed before the crash are expected to be ignored here
+        log.info("Replayed {} messages from the append log, {} were already stored", pending.size(),
+                pending.size() - inserted);
+        appendLog.truncate();
+    }
+}
@@ -27,15 +27,24 @@ public class OAuth2UserService extends DefaultOAuth2UserService {
 
     private final UserRepository userRepository;
     private final AuthenticationService authenticationService;
+    private final SenderProfileResolver senderProfileResolver;
+    private final UserSearchIndex userSearchIndex;
+    private final UserPrincipalCache principalCache;
 
     @Autowired
     private OAuth2AuthenticationInterceptor authInterceptor;
 
     // Constructor with @Lazy to break circular dependency
     public OAuth2UserService(UserRepository userRepository,
-            @Lazy AuthenticationService authenticationService) {
+            @Lazy AuthenticationService authenticationService,
+            SenderProfileResolver senderProfileResolver,
+            UserSearchIndex userSearchIndex,
+            UserPrincipalCache principalCache) {
         this.userRepository = userRepository;
         this.authenticationService = authenticationService;
+        this.senderProfileResolver = senderProfileResolver;
+        this.userSearchIndex = userSearchIndex;
+        this.principalCache = principalCache;
     }
 
     @Override
@@ -129,6 +138,8 @@ public class OAuth2UserService extends DefaultOAuth2UserService {
     }
 
     private User updateExistingUser(User existingUser, Oauth2UserInfoDto userInfoDto) {
+        String previousUsername = existingUser.getUsername();
+
         // Update name and picture from OAuth2 provider
         String fullName = userInfoDto.getName();
         existingUser.setName(fullName);
@@ -147,7 +158,14 @@ public class OAuth2UserService extends DefaultOAuth2UserService {
             existingUser.setLastname(nameParts.length > 1 ? nameParts[1] : "");
         }
 
-        return userRepository.save(existingUser);
+        User savedUser = userRepository.save(existingUser);
+        // Name and picture may have changed; chat messages show them
+        senderProfileResolver.evict(savedUser.getId());
+        userSearchIndex.put(savedUser);
+        // The username follows the e-mail, drop the principal under both
+        principalCache.invalidate(previousUsername);
+        principalCache.invalidate(savedUser.getUsername());
+        return savedUser;
     }
 
 }
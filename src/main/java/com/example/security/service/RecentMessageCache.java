@@ -0,0 +1,492 @@
+package com.example.security.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import com.example.security.dto.MessageResponse;
+import com.example.security.redisSchema.RedisSchema;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the most recent messages of hot channels so the "latest 15" window and
+ * short sync requests don't go to MySQL.
+ *
+ * Each channel holds up to {@code capacity} messages plus a floor: every
+ * message with a sequence number above the floor is known to be in the ring.
+ * A request is only answered from the ring when that guarantee covers it;
+ * otherwise the caller falls back to the database and seeds the ring.
+ *
+ * Messages may be appended out of sequence order, e.g. when sends on two
+ * nodes commit close together. They are inserted in sorted position; only
+ * messages below a floor that came from trimming or a seed are rejected. A
+ * floor set by the first append is provisional: it moves down once every
+ * message between it and a late earlier message is present.
+ *
+ * In-process rings are only correct on a single node. With
+ * {@code redis-mirror} enabled the rings live in Redis instead, so every node
+ * sees the messages written by the others.
+ */
+@Slf4j
+@Service
+public class RecentMessageCache {
+
+    // Rough per-message overhead of the response object, its strings and the map entry
+    private static final int MESSAGE_OVERHEAD_BYTES = 256;
+
+    private static final RedisScript<Long> APPEND_SCRIPT = new DefaultRedisScript<>("""
+            local sequence = tonumber(ARGV[1])
+            local floor = redis.call('GET', KEYS[2])
+            if not floor then
+              floor = sequence - 1
+              redis.call('SET', KEYS[2], floor)
+            else
+              floor = tonumber(floor)
+            end
+            local firm = redis.call('EXISTS', KEYS[3]) == 1
+            if sequence <= floor and firm then return 0 end
+            redis.call('ZADD', KEYS[1], sequence, ARGV[2])
+            if not firm then
+              while redis.call('ZCOUNT', KEYS[1], floor, floor) > 0 do floor = floor - 1 end
+              redis.call('SET', KEYS[2], floor)
+            end
+            local excess = redis.call('ZCARD', KEYS[1]) - tonumber(ARGV[3])
+            if excess > 0 then
+              local evicted = redis.call('ZRANGE', KEYS[1], excess - 1, excess - 1, 'WITHSCORES')
+              redis.call('ZREMRANGEBYRANK', KEYS[1], 0, excess - 1)
+              redis.call('SET', KEYS[2], math.max(floor, tonumber(evicted[2])))
+              redis.call('SET', KEYS[3], 1)
+            end
+            redis.call('EXPIRE', KEYS[1], ARGV[4])
+            redis.call('EXPIRE', KEYS[2], ARGV[4])
+            if redis.call('EXISTS', KEYS[3]) == 1 then redis.call('EXPIRE', KEYS[3], ARGV[4]) end
+            return 1
+            """, Long.class);
+
+    private static final RedisScript<Long> SEED_SCRIPT = new DefaultRedisScript<>("""
+            local seedFloor = tonumber(ARGV[1])
+            local last = tonumber(ARGV[2])
+            local current = redis.call('GET', KEYS[2])
+            if current then
+              current = tonumber(current)
+              if last >= 0 and last < current then return 0 end
+              if seedFloor <= current then
+                redis.call('SET', KEYS[2], seedFloor)
+                redis.call('SET', KEYS[3], 1)
+              end
+            else
+              redis.call('SET', KEYS[2], seedFloor)
+              redis.call('SET', KEYS[3], 1)
+            end
+            for i = 5, #ARGV, 2 do
+              redis.call('ZADD', KEYS[1], ARGV[i], ARGV[i + 1])
+            end
+            local excess = redis.call('ZCARD', KEYS[1]) - tonumber(ARGV[3])
+            if excess > 0 then
+              local evicted = redis.call('ZRANGE', KEYS[1], excess - 1, excess - 1, 'WITHSCORES')
+              redis.call('ZREMRANGEBYRANK', KEYS[1], 0, excess - 1)
+              redis.call('SET', KEYS[2], evicted[2])
+              redis.call('SET', KEYS[3], 1)
+            end
+            redis.call('EXPIRE', KEYS[1], ARGV[4])
+            redis.call('EXPIRE', KEYS[2], ARGV[4])
+            if redis.call('EXISTS', KEYS[3]) == 1 then redis.call('EXPIRE', KEYS[3], ARGV[4]) end
+            return 1
+            """, Long.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> READ_SCRIPT = new DefaultRedisScript<>("""
+            local floor = redis.call('GET', KEYS[2])
+            if not floor then return nil end
+            local result = redis.call('ZRANGE', KEYS[1], 0, -1)
+            table.insert(result, 1, floor)
+            return result
+            """, List.class);
+
+    private final int capacity;
+    private final long maxBytes;
+    private final boolean redisMirror;
+    private final long redisTtlSeconds;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    private final LinkedHashMap<Long, ChannelRing> rings = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public RecentMessageCache(StringRedisTemplate redisTemplate,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${application.chat.recent-cache.capacity:50}") int capacity,
+            @Value("${application.chat.recent-cache.max-memory-mb:64}") long maxMemoryMb,
+            @Value("${application.chat.recent-cache.redis-mirror:false}") boolean redisMirror,
+            @Value("${application.chat.recent-cache.redis-ttl-seconds:86400}") long redisTtlSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.capacity = capacity;
+        this.maxBytes = maxMemoryMb * 1024 * 1024;
+        this.redisMirror = redisMirror;
+        this.redisTtlSeconds = redisTtlSeconds;
+
+        FunctionCounter.builder("chat.recent.cache.hits", hits, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("chat.recent.cache.misses", misses, LongAdder::sum).register(meterRegistry);
+        Gauge.builder("chat.recent.cache.hit.ratio", this, RecentMessageCache::hitRatio).register(meterRegistry);
+        Gauge.builder("chat.recent.cache.bytes", totalBytes, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("chat.recent.cache.channels", this, RecentMessageCache::channelCount).register(meterRegistry);
+    }
+
+    /**
+     * Latest {@code count} messages in chronological order, or {@code null}
+     * when the ring cannot answer for sure.
+     */
+    public List<MessageResponse> latest(long channelId, int count) {
+        List<MessageResponse> result;
+        if (redisMirror) {
+            ChannelRing ring = readFromRedis(channelId);
+            result = ring != null ? ring.latest(count) : null;
+        } else {
+            ChannelRing ring = localRing(channelId);
+            if (ring == null) {
+                result = null;
+            } else {
+                synchronized (ring) {
+                    result = ring.latest(count);
+                }
+            }
+        }
+        record(result);
+        return result;
+    }
+
+    /**
+     * Up to {@code limit} messages after {@code afterSequence}, or {@code null}
+     * when some of them may be missing from the ring.
+     */
+    public List<MessageResponse> after(long channelId, long afterSequence, int limit) {
+        List<MessageResponse> result;
+        if (redisMirror) {
+            ChannelRing ring = readFromRedis(channelId);
+            result = ring != null ? ring.after(afterSequence, limit) : null;
+        } else {
+            ChannelRing ring = localRing(channelId);
+            if (ring == null) {
+                result = null;
+            } else {
+                synchronized (ring) {
+                    result = ring.after(afterSequence, limit);
+                }
+            }
+        }
+        record(result);
+        return result;
+    }
+
+    /**
+     * Adds a committed message to its channel's ring.
+     */
+    public void append(MessageResponse message) {
+        if (redisMirror) {
+            appendToRedis(message);
+            return;
+        }
+        ChannelRing ring;
+        synchronized (rings) {
+            ring = rings.computeIfAbsent(message.getChannelId(), id -> new ChannelRing());
+        }
+        long delta;
+        synchronized (ring) {
+            delta = ring.append(message);
+        }
+        account(message.getChannelId(), ring, delta);
+    }
+
+    /**
+     * Merges the result of a "latest N" database read into the ring.
+     *
+     * @param messages chronological page as read from the database
+     * @param complete whether the page holds the channel's entire history
+     */
+    public void seed(long channelId, List<MessageResponse> messages, boolean complete) {
+        long floor = complete || messages.isEmpty() ? 0 : messages.get(0).getSequenceNumber() - 1;
+        if (redisMirror) {
+            seedRedis(channelId, messages, floor);
+            return;
+        }
+        ChannelRing ring;
+        synchronized (rings) {
+            ring = rings.computeIfAbsent(channelId, id -> new ChannelRing());
+        }
+        long delta;
+        synchronized (ring) {
+            delta = ring.merge(messages, floor);
+        }
+        account(channelId, ring, delta);
+    }
+
+    public void evict(long channelId) {
+        if (redisMirror) {
+            redisTemplate.delete(redisKeys(channelId));
+            return;
+        }
+        ChannelRing removed;
+        synchronized (rings) {
+            removed = rings.remove(channelId);
+        }
+        if (removed != null) {
+            totalBytes.addAndGet(-removed.bytes);
+        }
+    }
+
+    public double hitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    private int channelCount() {
+        synchronized (rings) {
+            return rings.size();
+        }
+    }
+
+    private ChannelRing localRing(long channelId) {
+        synchronized (rings) {
+            return rings.get(channelId);
+        }
+    }
+
+    private void record(List<MessageResponse> result) {
+        if (result != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+    }
+
+    private void account(long channelId, ChannelRing ring, long delta) {
+        synchronized (rings) {
+            // A ring evicted meanwhile already gave back its bytes, including this delta
+            if (rings.get(channelId) != ring) {
+                return;
+            }
+            if (totalBytes.addAndGet(delta) <= maxBytes) {
+                return;
+            }
+            // Over the ceiling: drop least recently used channels
+            Iterator<Map.Entry<Long, ChannelRing>> it = rings.entrySet().iterator();
+            while (totalBytes.get() > maxBytes && it.hasNext()) {
+                ChannelRing evicted = it.next().getValue();
+                it.remove();
+                totalBytes.addAndGet(-evicted.bytes);
+            }
+        }
+    }
+
+    private void appendToRedis(MessageResponse message) {
+        try {
+            redisTemplate.execute(APPEND_SCRIPT, redisKeys(message.getChannelId()),
+                    String.valueOf(message.getSequenceNumber()),
+                    objectMapper.writeValueAsString(message),
+                    String.valueOf(capacity),
+                    String.valueOf(redisTtlSeconds));
+        } catch (Exception e) {
+            // A ring that misses a message would answer wrongly, so drop it
+            log.warn("Failed to mirror message to Redis, evicting channel {}", message.getChannelId(), e);
+            evictQuietly(message.getChannelId());
+        }
+    }
+
+    private void seedRedis(long channelId, List<MessageResponse> messages, long floor) {
+        try {
+            List<String> args = new ArrayList<>();
+            args.add(String.valueOf(floor));
+            args.add(messages.isEmpty() ? "-1"
+                    : String.valueOf(messages.get(messages.size() - 1).getSequenceNumber()));
+            args.add(String.valueOf(capacity));
+            args.add(String.valueOf(redisTtlSeconds));
+            for (MessageResponse message : messages) {
+                args.add(String.valueOf(message.getSequenceNumber()));
+                args.add(objectMapper.writeValueAsString(message));
+            }
+            redisTemplate.execute(SEED_SCRIPT, redisKeys(channelId), args.toArray());
+        } catch (Exception e) {
+            log.warn("Failed to seed recent messages of channel {} in Redis", channelId, e);
+        }
+    }
+
+    private ChannelRing readFromRedis(long channelId) {
+        try {
+            List<?> raw = redisTemplate.execute(READ_SCRIPT,
+                    List.of(RedisSchema.getRecentMessagesKey(channelId),
+                            RedisSchema.getRecentMessagesFloorKey(channelId)));
+            if (raw == null || raw.isEmpty()) {
+                return null;
+            }
+            ChannelRing ring = new ChannelRing();
+            ring.floor = Long.parseLong(raw.get(0).toString());
+            for (Object json : raw.subList(1, raw.size())) {
+                MessageResponse message = objectMapper.readValue(json.toString(), MessageResponse.class);
+                ring.messages.put(message.getSequenceNumber(), message);
+            }
+            return ring;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to read recent messages of channel {} from Redis", channelId, e);
+            return null;
+        }
+    }
+
+    private static List<String> redisKeys(long channelId) {
+        return List.of(RedisSchema.getRecentMessagesKey(channelId),
+                RedisSchema.getRecentMessagesFloorKey(channelId),
+                RedisSchema.getRecentMessagesFloorFirmKey(channelId));
+    }
+
+    private void evictQuietly(long channelId) {
+        try {
+            evict(channelId);
+        } catch (RuntimeException e) {
+            log.warn("Failed to evict recent messages of channel {}", channelId, e);
+        }
+    }
+
+    private static long estimateBytes(MessageResponse message) {
+        long chars = length(message.getContent()) + length(message.getSender())
+                + length(message.getSenderName()) + length(message.getSenderAvatar())
+                + length(message.getTimestamp());
+        return MESSAGE_OVERHEAD_BYTES + chars * 2;
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    /**
+     * Messages of one channel keyed by sequence number. Every message with a
+     * sequence number above {@code floor} is present; late messages below a
+     * provisional floor are kept until the gap above them fills.
+     */
+    private final class ChannelRing {
+        private final NavigableMap<Long, MessageResponse> messages = new TreeMap<>();
+        private long floor = Long.MAX_VALUE;
+        // Whether the floor came from trimming or a seed, see the class comment
+        private boolean firmFloor;
+        private volatile long bytes;
+
+        private List<MessageResponse> latest(int count) {
+            NavigableMap<Long, MessageResponse> vouched = messages.tailMap(floor, false);
+            int size = vouched.size();
+            if (size < count && floor != 0) {
+                return null;
+            }
+            List<MessageResponse> result = new ArrayList<>(Math.min(count, size));
+            for (MessageResponse message : vouched.descendingMap().values()) {
+                if (result.size() >= count) {
+                    break;
+                }
+                result.add(message);
+            }
+            Collections.reverse(result);
+            return result;
+        }
+
+        private List<MessageResponse> after(long afterSequence, int limit) {
+            if (afterSequence < floor) {
+                return null;
+            }
+            List<MessageResponse> result = new ArrayList<>();
+            for (MessageResponse message : messages.tailMap(afterSequence, false).values()) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                result.add(message);
+            }
+            return result;
+        }
+
+        /**
+         * @return change in estimated bytes
+         */
+        private long append(MessageResponse message) {
+            long sequence = message.getSequenceNumber();
+            if (floor == Long.MAX_VALUE) {
+                // First write seen for this channel: only newer messages are known
+                floor = sequence - 1;
+            }
+            if (sequence <= floor && firmFloor) {
+                return 0;
+            }
+            if (messages.containsKey(sequence)) {
+                return 0;
+            }
+            messages.put(sequence, message);
+            if (!firmFloor) {
+                // A late earlier message may close the gap below the floor
+                while (messages.containsKey(floor)) {
+                    floor--;
+                }
+            }
+            long delta = estimateBytes(message);
+            bytes += delta;
+            return delta + trim();
+        }
+
+        private long merge(List<MessageResponse> page, long pageFloor) {
+            boolean contiguous = floor == Long.MAX_VALUE
+                    || page.isEmpty()
+                    || page.get(page.size() - 1).getSequenceNumber() >= floor;
+            if (!contiguous) {
+                // The page ends below what the ring already vouches for; a
+                // message in between may have been missed, keep the ring as is
+                return 0;
+            }
+            long delta = 0;
+            for (MessageResponse message : page) {
+                if (message.getSequenceNumber() > pageFloor
+                        && messages.putIfAbsent(message.getSequenceNumber(), message) == null) {
+                    long size = estimateBytes(message);
+                    bytes += size;
+                    delta += size;
+                }
+            }
+            if (pageFloor <= floor) {
+                floor = pageFloor;
+                firmFloor = true;
+            }
+            return delta + trim();
+        }
+
+        private long trim() {
+            long delta = 0;
+            while (messages.size() > capacity) {
+                Map.Entry<Long, MessageResponse> oldest = messages.pollFirstEntry();
+                floor = Math.max(floor, oldest.getKey());
+                firmFloor = true;
+                long size = estimateBytes(oldest.getValue());
+                bytes -= size;
+                delta -= size;
+            }
+            return delta;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.security.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.security.cache.BoundedTtlCache;
+import com.example.security.dto.ChannelSearchResponse;
+import com.example.security.dto.SearchResponse;
+import com.example.security.dto.UserSearchResponse;
+import com.example.security.repository.ChatRepo.ChannelRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Typeahead search over users and the caller's group channels in one call.
+ *
+ * Both lookups run concurrently and are capped per type. User results don't
+ * depend on the caller, so popular prefixes are answered from a short-lived
+ * cache; channel results are filtered to the caller's group channels as
+ * cached by {@link ChannelMembershipCache}, which drops them whenever the
+ * caller joins or leaves a channel.
+ */
+@Service
+public class SearchService {
+
+    public static final int DEFAULT_LIMIT = 10;
+    public static final int MAX_LIMIT = 25;
+
+    private final UserService userService;
+    private final ChannelSearchIndex channelSearchIndex;
+    private final ChannelRepository channelRepository;
+    private final ChannelMembershipCache membershipCache;
+
+    private final BoundedTtlCache<String, List<UserSearchResponse>> userResults;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public SearchService(UserService userService,
+            ChannelSearchIndex channelSearchIndex,
+            ChannelRepository channelRepository,
+            ChannelMembershipCache membershipCache,
+            MeterRegistry meterRegistry,
+            @Value("${application.chat.search-cache.max-size:5000}") int maxSize,
+            @Value("${application.chat.search-cache.ttl-seconds:30}") long ttlSeconds) {
+        this.userService = userService;
+        this.channelSearchIndex = channelSearchIndex;
+        this.channelRepository = channelRepository;
+        this.membershipCache = membershipCache;
+        this.userResults = new BoundedTtlCache<>(maxSize, Duration.ofSeconds(ttlSeconds));
+
+        FunctionCounter.builder("chat.search.cache.hits", userResults, BoundedTtlCache::hitCount)
+                .register(meterRegistry);
+        FunctionCounter.builder("chat.search.cache.misses", userResults, BoundedTtlCache::missCount)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    public SearchResponse search(UUID userId, String query, Integer limit) {
+        String normalized = query == null ? "" : query.trim().toLowerCase(Locale.ROOT);
+        if (normalized.isEmpty()) {
+            return new SearchResponse(List.of(), List.of());
+        }
+        int cap = limit == null ? DEFAULT_LIMIT : Math.min(Math.max(limit, 1), MAX_LIMIT);
+
+        CompletableFuture<List<UserSearchResponse>> users = CompletableFuture
+                .supplyAsync(() -> searchUsers(normalized, cap), executor);
+        List<ChannelSearchResponse> channels = searchChannels(userId, normalized, cap);
+
+        return new SearchResponse(users.join(), channels);
+    }
+
+    private List<UserSearchResponse> searchUsers(String query, int limit) {
+        String key = limit + ":" + query;
+        List<UserSearchResponse> cached = userResults.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        List<UserSearchResponse> result = List.copyOf(userService.searchUsers(query, limit));
+        userResults.put(key, result);
+        return result;
+    }
+
+    private List<ChannelSearchResponse> searchChannels(UUID userId, String query, int limit) {
+        Set<Long> allowed = membershipCache.groupChannels(userId);
+        if (allowed.isEmpty()) {
+            return List.of();
+        }
+
+        List<ChannelSearchResponse> indexed = channelSearchIndex.search(query, limit,
+                channel -> allowed.contains(channel.getId()));
+        if (indexed != null) {
+            return indexed;
+        }
+        // Index still loading
+        return channelRepository.findByNameContainingIgnoreCase(query).stream()
+                .filter(channel -> allowed.contains(channel.getId()))
+                .limit(limit)
+                .map(channel -> new ChannelSearchResponse(channel.getId(), channel.getName()))
+                .toList();
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.security.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.security.cache.BoundedTtlCache;
+import com.example.security.model.Chatting.Message;
+import com.example.security.repository.UserProfileView;
+import com.example.security.repository.UserRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Resolves sender display name and picture for a page of messages with one
+ * {@code findAllById} per page instead of one lookup per message, backed by
+ * a bounded TTL cache so repeated senders don't hit MySQL at all.
+ */
+@Service
+public class SenderProfileResolver {
+
+    // Keeps the IN list of a single query at a size MySQL plans well
+    private static final int LOOKUP_CHUNK_SIZE = 1000;
+
+    public record SenderProfile(String name, String picture) {
+        public static final SenderProfile UNKNOWN = new SenderProfile("Unknown", "");
+    }
+
+    private final UserRepository userRepository;
+    private final BoundedTtlCache<String, SenderProfile> cache;
+
+    public SenderProfileResolver(UserRepository userRepository,
+            MeterRegistry meterRegistry,
+            @Value("${application.chat.sender-cache.max-size:10000}") int maxSize,
+            @Value("${application.chat.sender-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.cache = new BoundedTtlCache<>(maxSize, Duration.ofSeconds(ttlSeconds));
+
+        FunctionCounter.builder("chat.sender.cache.hits", cache, BoundedTtlCache::hitCount)
+                .register(meterRegistry);
+        FunctionCounter.builder("chat.sender.cache.misses", cache, BoundedTtlCache::missCount)
+                .register(meterRegistry);
+        Gauge.builder("chat.sender.cache.size", cache, BoundedTtlCache::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the profile of every distinct sender in the given messages,
+     * keyed by the sender ID string stored on the message.
+     */
+    public Map<String, SenderProfile> resolve(Collection<Message> messages) {
+        Map<String, SenderProfile> profiles = new HashMap<>();
+        Map<UUID, String> missing = new HashMap<>();
+
+        Set<String> senderIds = new LinkedHashSet<>();
+        for (Message message : messages) {
+            if (message.getSender() != null) {
+                senderIds.add(message.getSender());
+            }
+        }
+
+        for (String senderId : senderIds) {
+            SenderProfile cached = cache.get(senderId);
+            if (cached != null) {
+                profiles.put(senderId, cached);
+                continue;
+            }
+            try {
+                missing.put(UUID.fromString(senderId), senderId);
+            } catch (IllegalArgumentException e) {
+                profiles.put(senderId, SenderProfile.UNKNOWN);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            List<UUID> ids = new ArrayList<>(missing.keySet());
+            for (int from = 0; from < ids.size(); from += LOOKUP_CHUNK_SIZE) {
+                List<UUID> chunk = ids.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, ids.size()));
+                for (UserProfileView user : userRepository.findProfilesByIdIn(chunk)) {
+                    SenderProfile profile = new SenderProfile(
+                            user.getName() != null ? user.getName() : user.getUsername(),
+                            user.getPicture());
+                    String senderId = missing.remove(user.getId());
+                    if (senderId != null) {
+                        cache.put(senderId, profile);
+                        profiles.put(senderId, profile);
+                    }
+                }
+            }
+            // Remember senders that no longer exist so they are not looked up again
+            for (String senderId : missing.values()) {
+                cache.put(senderId, SenderProfile.UNKNOWN);
+                profiles.put(senderId, SenderProfile.UNKNOWN);
+            }
+        }
+
+        return profiles;
+    }
+
+    /**
+     * Drops the cached profile of a user, e.g. after a name or picture change.
+     */
+    public void evict(UUID userId) {
+        cache.invalidate(userId.toString());
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.security.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Sends one payload to many STOMP destinations. The payload is serialized to
+ * JSON once and the same byte array goes to every destination, instead of
+ * {@code convertAndSend} running Jackson again for each recipient.
+ */
+@Service
+@RequiredArgsConstructor
+public class StompFanoutSender {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectMapper objectMapper;
+
+    public void send(Collection<String> destinations, Object payload) {
+        if (destinations.isEmpty()) {
+            return;
+        }
+        Message<byte[]> message = encode(payload);
+        for (String destination : destinations) {
+            // Only the headers are copied per destination, the payload is shared
+            messagingTemplate.send(destination, message);
+        }
+    }
+
+    /**
+     * Sends to {@code prefix + id} for every ID, e.g. each member's queue.
+     */
+    public void sendToEach(String prefix, Collection<?> ids, Object payload) {
+        List<String> destinations = new ArrayList<>(ids.size());
+        for (Object id : ids) {
+            destinations.add(prefix + id);
+        }
+        send(destinations, payload);
+    }
+
+    private Message<byte[]> encode(Object payload) {
+        try {
+            return MessageBuilder.withPayload(objectMapper.writeValueAsBytes(payload))
+                    .setHeader(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON)
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize STOMP payload", e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.security.service;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.example.security.cache.BoundedTtlCache;
+import com.example.security.dto.ValidatedToken;
+import com.example.security.model.Authority.Token;
+
+/**
+ * Answers whether a token was revoked or expired in the {@code tokens}
+ * table, remembering the answer for a few seconds so a token in active use
+ * costs one indexed lookup per TTL instead of one per request. A revocation
+ * on another node is therefore noticed within {@code revocation-check-seconds}.
+ *
+ * The same lookup reads the account the token belongs to: once it is
+ * disabled, locked or expired, or its role no longer matches the role claim,
+ * the token is rejected too, within the same delay.
+ */
+@Service
+public class TokenRevocationChecker {
+
+    private static final String USER_ROLE = "USER";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BoundedTtlCache<String, TokenState> states;
+
+    private record TokenState(boolean rejected, String role) {
+        // Tokens that were never stored can't have been revoked
+        static final TokenState UNKNOWN = new TokenState(false, null);
+    }
+
+    public TokenRevocationChecker(JdbcTemplate jdbcTemplate,
+            @Value("${application.security.jwt.revocation-cache.max-size:100000}") int maxSize,
+            @Value("${application.security.jwt.revocation-check-seconds:30}") long ttlSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.states = new BoundedTtlCache<>(maxSize, Duration.ofSeconds(ttlSeconds));
+    }
+
+    public boolean isRevoked(ValidatedToken token) {
+        TokenState state = states.get(token.token());
+        if (state == null) {
+            List<TokenState> rows = jdbcTemplate.query(
+                    "SELECT t.revoked OR t.expired OR NOT u.enabled OR NOT u.account_non_locked "
+                            + "OR NOT u.account_non_expired AS rejected, u.role AS role "
+                            + "FROM tokens t JOIN users u ON u.id = t.user_id WHERE t.token = ?",
+                    (rs, row) -> new TokenState(rs.getBoolean("rejected"), rs.getString("role")),
+                    Token.digest(token.token()));
+            state = rows.isEmpty() ? TokenState.UNKNOWN : rows.get(0);
+            states.put(token.token(), state);
+        }
+        if (state.rejected()) {
+            return true;
+        }
+        // The principal is built from the role claim, which a role change doesn't update
+        return state != TokenState.UNKNOWN && !roleOrDefault(state.role())
+                .equals(roleOrDefault(token.claim(ValidatedToken.CLAIM_ROLE, String.class)));
+    }
+
+    /**
+     * Makes a revocation on this node take effect immediately.
+     */
+    public void forget(String token) {
+        states.invalidate(token);
+    }
+
+    private static String roleOrDefault(String role) {
+        return role != null ? role : USER_ROLE;
+    }
+}
@@ -49,7 +49,7 @@ public class TokenService {
     public void saveUserToken(User user, String jwtToken) {
         Token token = Token.builder()
                 .user(user)
-                .token(jwtToken)
+                .token(Token.digest(jwtToken))
                 .tokenType(TokenType.BEARER)
                 .expired(false)
                 .revoked(false)
@@ -0,0 +1,141 @@
+package com.example.security.service;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.security.cache.BoundedTtlCache;
+import com.example.security.dto.UserPrincipal;
+import com.example.security.redisSchema.RedisSchema;
+import com.example.security.repository.UserRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Backs the {@code UserDetailsService} so authenticated requests don't load
+ * the user from MySQL every time. Principals are cached by username for
+ * {@code ttl-seconds}.
+ *
+ * Code that changes a user's password, profile or role calls
+ * {@link #invalidate(String)}, which drops the local entry and, after commit,
+ * tells the other nodes through Redis pub/sub. The TTL bounds how long a
+ * lost invalidation message can leave a stale principal around.
+ */
+@Slf4j
+@Service
+public class UserPrincipalCache {
+
+    private final UserRepository userRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final boolean redisInvalidation;
+    private final BoundedTtlCache<String, UserPrincipal> cache;
+    private final Timer loadTimer;
+
+    public UserPrincipalCache(UserRepository userRepository,
+            StringRedisTemplate redisTemplate,
+            RedisMessageListenerContainer listenerContainer,
+            MeterRegistry meterRegistry,
+            @Value("${application.security.principal-cache.max-size:10000}") int maxSize,
+            @Value("${application.security.principal-cache.ttl-seconds:300}") long ttlSeconds,
+            @Value("${application.security.principal-cache.redis-invalidation:true}") boolean redisInvalidation) {
+        this.userRepository = userRepository;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.redisInvalidation = redisInvalidation;
+        this.cache = new BoundedTtlCache<>(maxSize, Duration.ofSeconds(ttlSeconds));
+
+        this.loadTimer = Timer.builder("auth.principal.cache.load")
+                .description("Time to load a user on a cache miss")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        FunctionCounter.builder("auth.principal.cache.hits", cache, BoundedTtlCache::hitCount)
+                .register(meterRegistry);
+        FunctionCounter.builder("auth.principal.cache.misses", cache, BoundedTtlCache::missCount)
+                .register(meterRegistry);
+        FunctionCounter.builder("auth.principal.cache.evictions", cache, BoundedTtlCache::evictionCount)
+                .register(meterRegistry);
+        Gauge.builder("auth.principal.cache.hit.ratio", cache, BoundedTtlCache::hitRatio)
+                .register(meterRegistry);
+        Gauge.builder("auth.principal.cache.size", cache, BoundedTtlCache::size)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        if (!redisInvalidation) {
+            return;
+        }
+        listenerContainer.addMessageListener((message, pattern) -> cache.invalidate(new String(message.getBody())),
+                new ChannelTopic(RedisSchema.getPrincipalInvalidationChannel()));
+    }
+
+    /**
+     * Returns the principal of the user, loading it on a miss. Unknown
+     * usernames are not cached.
+     *
+     * @throws UsernameNotFoundException if there is no such user
+     */
+    public UserPrincipal loadUserByUsername(String username) {
+        UserPrincipal principal = cache.get(username);
+        if (principal != null) {
+            return principal;
+        }
+        principal = loadTimer.record((Supplier<UserPrincipal>) () -> userRepository.findAccountByUsername(username)
+                .map(UserPrincipal::create)
+                .orElse(null));
+        if (principal == null) {
+            throw new UsernameNotFoundException("User not found");
+        }
+        cache.put(username, principal);
+        return principal;
+    }
+
+    /**
+     * Drops the cached principal of a changed user on every node. Called
+     * inside the changing transaction, the entry is dropped again after
+     * commit so a concurrent load can't keep the old state.
+     */
+    public void invalidate(String username) {
+        if (username == null) {
+            return;
+        }
+        cache.invalidate(username);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            broadcast(username);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.invalidate(username);
+                broadcast(username);
+            }
+        });
+    }
+
+    private void broadcast(String username) {
+        if (!redisInvalidation) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(RedisSchema.getPrincipalInvalidationChannel(), username);
+        } catch (RuntimeException e) {
+            // Other nodes fall back to the TTL
+            log.warn("Failed to publish principal invalidation for {}", username, e);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.security.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.example.security.dto.UserSearchResponse;
+import com.example.security.event.UserRegistrationEvent;
+import com.example.security.model.User;
+import com.example.security.redisSchema.RedisSchema;
+import com.example.security.search.PrefixSearchIndex;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Typeahead index over user names, usernames and e-mail addresses.
+ *
+ * Built in the background after startup; until then {@link #search} returns
+ * {@code null} and callers fall back to the database. Kept current by
+ * registrations and profile updates; changes are published through Redis
+ * pub/sub and every node re-reads the changed user from the database.
+ */
+@Slf4j
+@Service
+public class UserSearchIndex {
+
+    private static final int LOAD_PAGE_SIZE = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final boolean redisSync;
+    private final PrefixSearchIndex<UserSearchResponse> index = new PrefixSearchIndex<>();
+    private final Timer lookupTimer;
+
+    private volatile boolean ready;
+
+    public UserSearchIndex(JdbcTemplate jdbcTemplate,
+            StringRedisTemplate redisTemplate,
+            RedisMessageListenerContainer listenerContainer,
+            MeterRegistry meterRegistry,
+            @Value("${application.chat.search-index.redis-sync:true}") boolean redisSync) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.redisSync = redisSync;
+        this.lookupTimer = Timer.builder("chat.search.lookup")
+                .tag("index", "users")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("chat.search.documents", index, PrefixSearchIndex::size)
+                .tag("index", "users")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        if (!redisSync) {
+            return;
+        }
+        listenerContainer.addMessageListener((message, pattern) -> {
+            try {
+                refresh(UUID.fromString(new String(message.getBody())));
+            } catch (IllegalArgumentException e) {
+                log.warn("Ignoring malformed user search index message");
+            } catch (RuntimeException e) {
+                log.warn("Failed to refresh the user search index", e);
+            }
+        }, new ChannelTopic(RedisSchema.getSearchIndexChannel("users")));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        Thread loader = new Thread(this::load, "user-search-index");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    @EventListener
+    public void handleUserRegistration(UserRegistrationEvent event) {
+        put(event.getUser());
+    }
+
+    /**
+     * Indexes a saved user here and, when anything changed, on the other
+     * nodes. Logins republish the user too, those are no-ops.
+     */
+    public void put(User user) {
+        boolean changed = index.put(user.getId().toString(), toResponse(user.getId(), user.getUsername(),
+                user.getName(), user.getPicture()), text(user.getName(), user.getUsername(), user.getEmail()));
+        if (changed) {
+            publish(user.getId());
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} ranked matches, or {@code null} while the
+     * index is still loading.
+     */
+    public List<UserSearchResponse> search(String query, int limit) {
+        if (!ready) {
+            return null;
+        }
+        return lookupTimer.record((Supplier<List<UserSearchResponse>>) () -> index.search(query, limit));
+    }
+
+    // Re-reads one user after another node changed it
+    private void refresh(UUID userId) {
+        List<PrefixSearchIndex.Entry<UserSearchResponse>> rows = jdbcTemplate.query(
+                "SELECT id, username, name, email, picture FROM users WHERE id = ?",
+                (rs, row) -> new PrefixSearchIndex.Entry<>(rs.getString("id"),
+                        toResponse(userId, rs.getString("username"), rs.getString("name"), rs.getString("picture")),
+                        text(rs.getString("name"), rs.getString("username"), rs.getString("email"))),
+                userId.toString());
+        if (rows.isEmpty()) {
+            index.remove(userId.toString());
+        } else {
+            PrefixSearchIndex.Entry<UserSearchResponse> entry = rows.get(0);
+            index.put(entry.key(), entry.value(), entry.text());
+        }
+    }
+
+    private void publish(UUID userId) {
+        if (!redisSync) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(RedisSchema.getSearchIndexChannel("users"), userId.toString());
+        } catch (RuntimeException e) {
+            // Other nodes pick it up on their next restart
+            log.warn("Failed to publish search index change of user {}", userId, e);
+        }
+    }
+
+    private void load() {
+        long started = System.currentTimeMillis();
+        List<PrefixSearchIndex.Entry<UserSearchResponse>> entries = new ArrayList<>();
+        String lastId = "";
+        index.beginLoad();
+        try {
+            while (true) {
+                List<PrefixSearchIndex.Entry<UserSearchResponse>> page = jdbcTemplate.query(
+                        "SELECT id, username, name, email, picture FROM users WHERE id > ? ORDER BY id LIMIT ?",
+                        (rs, row) -> {
+                            String id = rs.getString("id");
+                            return new PrefixSearchIndex.Entry<>(id,
+                                    toResponse(UUID.fromString(id), rs.getString("username"), rs.getString("name"),
+                                            rs.getString("picture")),
+                                    text(rs.getString("name"), rs.getString("username"), rs.getString("email")));
+                        },
+                        lastId, LOAD_PAGE_SIZE);
+                entries.addAll(page);
+                if (page.size() < LOAD_PAGE_SIZE) {
+                    break;
+                }
+                lastId = page.get(page.size() - 1).key();
+            }
+
+            // Shorter names first: a closer match for the same prefix
+            entries.sort(Comparator.comparingInt(
+                    (PrefixSearchIndex.Entry<UserSearchResponse> e) -> e.text().length())
+                    .thenComparing(PrefixSearchIndex.Entry::key));
+            index.loadAll(entries);
+            ready = true;
+            log.info("User search index loaded {} users in {} ms", entries.size(),
+                    System.currentTimeMillis() - started);
+        } catch (RuntimeException e) {
+            index.cancelLoad();
+            log.error("Failed to build the user search index, searches stay on the database", e);
+        }
+    }
+
+    private static UserSearchResponse toResponse(UUID id, String username, String name, String picture) {
+        return UserSearchResponse.builder()
+                .id(id)
+                .username(username)
+                .name(name)
+                .picture(picture)
+                .build();
+    }
+
+    // Name first so a match on the first name ranks ahead of one on the e-mail
+    private static String text(String name, String username, String email) {
+        StringBuilder text = new StringBuilder();
+        if (name != null) {
+            text.append(name).append(' ');
+        }
+        if (username != null && !username.equals(email)) {
+            text.append(username).append(' ');
+        }
+        if (email != null) {
+            text.append(email);
+        }
+        return text.toString();
+    }
+}
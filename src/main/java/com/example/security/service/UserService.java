@@ -5,11 +5,13 @@ import java.util.List;
 
 import java.util.stream.Collectors;
 
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import com.example.security.dto.ChangePasswordRequest;
+import com.example.security.dto.UserPrincipal;
 import com.example.security.dto.UserSearchResponse;
 import com.example.security.model.User;
 import com.example.security.repository.UserRepository;
@@ -22,10 +24,17 @@ public class UserService {
 
     private final PasswordEncoder passwordEncoder;
     private final UserRepository repository;
+    private final UserSearchIndex userSearchIndex;
+    private final UserPrincipalCache principalCache;
+
+    private static final int SEARCH_LIMIT = 50;
 
     public void changePassword(ChangePasswordRequest request, Principal connectedUser) {
 
-        var user = (User) ((UsernamePasswordAuthenticationToken) connectedUser).getPrincipal();
+        // The authenticated principal is a UserPrincipal, not the entity
+        var principal = (UserPrincipal) ((UsernamePasswordAuthenticationToken) connectedUser).getPrincipal();
+        User user = repository.findById(principal.getId())
+                .orElseThrow(() -> new IllegalStateException("User not found"));
 
         // check if the current password is correct
         if (!passwordEncoder.matches(request.getCurrentPassword(), user.getPassword())) {
@@ -41,10 +50,21 @@ public class UserService {
 
         // save the new password
         repository.save(user);
+        principalCache.invalidate(user.getUsername());
     }
 
     public List<UserSearchResponse> searchUsers(String query) {
-        return repository.findByNameContainingIgnoreCaseOrEmailContainingIgnoreCase(query, query)
+        return searchUsers(query, SEARCH_LIMIT);
+    }
+
+    public List<UserSearchResponse> searchUsers(String query, int limit) {
+        List<UserSearchResponse> indexed = userSearchIndex.search(query, limit);
+        if (indexed != null) {
+            return indexed;
+        }
+        // Index still loading
+        return repository.findProfilesByNameContainingIgnoreCaseOrEmailContainingIgnoreCase(query, query,
+                PageRequest.of(0, limit))
                 .stream()
                 .map(user -> UserSearchResponse.builder()
                         .id(user.getId())
@@ -49,6 +49,9 @@ $.ajax({
 let users = [];
 let channels = [];
 
+// Group channels broadcast on their own topic, keyed by channel ID
+const channelSubscriptions = {};
+
 // Mock Messages Store
 const messages = {};
 
@@ -56,6 +59,8 @@ const messages = {};
 let activeChatId = null;
 let activeChatType = null;
 let isLoadingOld = false;
+// Largest page /updates returns, matches ChatService.SYNC_PAGE_SIZE
+const SYNC_PAGE_SIZE = 500;
 
 // DOM Elements
 const dmListEl = document.getElementById('dm-list');
@@ -135,6 +140,11 @@ function connectWebSocket() {
                 }
             });
 
+            // Outcome of messages sent over the socket
+            stompClient.subscribe('/queue/receipts-user-' + currentUser.id, (frame) => {
+                handleSendReceipt(JSON.parse(frame.body));
+            });
+
             // Subscribe to user updates (channel added/removed)
             stompClient.subscribe('/queue/updates-user-' + currentUser.id, (notification) => {
                 const body = JSON.parse(notification.body);
@@ -151,9 +161,11 @@ function connectWebSocket() {
                         channels.push(newChannel);
                         renderSidebar();
                     }
+                    subscribeChannelTopic(newChannel.id);
                 } else if (body.type === 'CHANNEL_REMOVED') {
                     const channelId = String(body.channelId);
                     channels = channels.filter(c => c.id !== channelId);
+                    unsubscribeChannelTopic(channelId);
                     renderSidebar();
 
                     // If active chat was this channel, clear it
@@ -168,6 +180,56 @@ function connectWebSocket() {
                 }
             });
         }
+
+        // Subscriptions don't survive a reconnect
+        Object.keys(channelSubscriptions).forEach(id => delete channelSubscriptions[id]);
+        channels.forEach(c => subscribeChannelTopic(c.id));
+
+        // Pushes only carry new messages, so fetch anything missed while disconnected
+        syncActiveChat();
+    };
+
+    function syncActiveChat() {
+        const current = activeChatId ? messages[activeChatId] : null;
+        if (!current || current.length === 0) return;
+
+        const last = current.filter(m => m.sequenceNumber && m.channelId).pop();
+        if (!last) return;
+
+        syncChannelFrom(last.channelId, last.sequenceNumber);
+    }
+
+    // A full page means there may be more, keep asking until a short one
+    function syncChannelFrom(channelId, afterSequence) {
+        $.get(`/api/chat/channel/${channelId}/updates?afterSequence=${afterSequence}`, function (data) {
+            if (!Array.isArray(data) || data.length === 0) return;
+
+            data.forEach(msg => handleIncomingMessage(msg));
+            if (data.length >= SYNC_PAGE_SIZE) {
+                syncChannelFrom(channelId, data[data.length - 1].sequenceNumber);
+            }
+        });
+    }
+
+    window.subscribeChannelTopic = function (channelId) {
+        if (!stompClient.connected || channelSubscriptions[channelId]) return;
+
+        channelSubscriptions[channelId] = stompClient.subscribe('/topic/channel-' + channelId, (frame) => {
+            const body = JSON.parse(frame.body);
+            if (Array.isArray(body)) {
+                body.forEach(msg => handleIncomingMessage(msg));
+            } else {
+                handleIncomingMessage(body);
+            }
+        });
+    };
+
+    window.unsubscribeChannelTopic = function (channelId) {
+        const subscription = channelSubscriptions[channelId];
+        if (subscription) {
+            subscription.unsubscribe();
+            delete channelSubscriptions[channelId];
+        }
     };
 
     function handleIncomingMessage(msg) {
@@ -217,6 +279,7 @@ function connectWebSocket() {
         if (normalizedActiveChatId === chatId) {
             renderMessages(activeChatId); // Keep original case for render function if needed
             messagesContainer.scrollTop = messagesContainer.scrollHeight;
+            markChatRead(activeChatId);
         } else {
             // Optional: Show unread badge
         }
@@ -244,6 +307,7 @@ function fetchUserChats() {
                 type: 'group',
                 members: 0 // We don't have member count yet
             }));
+            channels.forEach(c => subscribeChannelTopic(c.id));
             renderSidebar();
         } else {
             console.error("Expected array for channels but got:", data);
@@ -261,7 +325,9 @@ function fetchUserChats() {
                 avatar: u.picture ? `<img src="${u.picture}" class="w-full h-full object-cover rounded-full" />` : (u.name || u.username).substring(0, 2).toUpperCase(),
                 color: 'bg-gray-100 text-gray-700', // Default color
                 status: 'offline', // We don't have status yet
-                type: 'dm'
+                type: 'dm',
+                channelId: u.channelId,
+                unread: u.unreadCount || 0
             }));
             renderSidebar();
         } else {
@@ -292,7 +358,7 @@ function renderSidebar() {
                     <span class="text-sm font-semibold text-gray-900 truncate">${u.name}</span>
                     <span class="text-xs text-gray-500">2m</span>
                 </div>
-                <p class="text-xs text-gray-500 truncate">Active ${u.status}</p>
+                <p class="text-xs ${u.unread ? 'font-semibold text-gray-900' : 'text-gray-500'} truncate">${u.unread ? (u.unread > 99 ? '99+' : u.unread) + ' unread' : 'Active ' + u.status}</p>
             </div>
         </div>
     `;
@@ -464,6 +530,7 @@ function loadChat(id, type) {
             messages[id] = data.map(msg => convertToFrontendMessage(msg));
             renderMessages(id);
             messagesContainer.scrollTop = messagesContainer.scrollHeight;
+            markChatRead(id);
         } else {
             // Check if it's a login page (HTML) indicating session expiration
             if (typeof data === 'string' && (data.includes('<!DOCTYPE html>') || data.includes('<html'))) {
@@ -487,6 +554,20 @@ function loadChat(id, type) {
     });
 }
 
+// Moves the server-side read marker to the newest loaded message
+function markChatRead(id) {
+    const last = (messages[id] || []).filter(m => m.sequenceNumber && m.channelId).pop();
+    if (!last) return;
+
+    $.post(`/api/chat/channel/${last.channelId}/read?sequence=${last.sequenceNumber}`);
+
+    const user = users.find(u => u.id === id);
+    if (user && user.unread) {
+        user.unread = 0;
+        renderSidebar();
+    }
+}
+
 function renderMessages(id) {
     const msgs = messages[id] || [];
 
@@ -629,6 +710,14 @@ function sendMessage() {
 
     input.value = '';
 
+    // Prefer the open socket; the receipt carries the assigned sequence number
+    if (stompClient.connected) {
+        payload.clientMessageId = String(tempId);
+        pendingSends[payload.clientMessageId] = { chatId: activeChatId, message: optimisticMsg };
+        stompClient.publish({ destination: '/app/chat.send', body: JSON.stringify(payload) });
+        return;
+    }
+
     // Send request
     let url = '/api/chat/send';
 
@@ -646,6 +735,28 @@ function sendMessage() {
     });
 }
 
+// Optimistic messages sent over the socket, by client message id
+const pendingSends = {};
+
+function handleSendReceipt(receipt) {
+    const pending = pendingSends[receipt.clientMessageId];
+    if (!pending) return;
+    delete pendingSends[receipt.clientMessageId];
+
+    if (receipt.status === 'ACCEPTED') {
+        pending.message.sequenceNumber = receipt.sequenceNumber;
+        pending.message.channelId = receipt.channelId;
+        return;
+    }
+
+    console.error("Message rejected:", receipt.error);
+    const list = messages[pending.chatId];
+    if (list) {
+        messages[pending.chatId] = list.filter(m => m !== pending.message);
+        if (activeChatId === pending.chatId) renderMessages(activeChatId);
+    }
+}
+
 // Enter to send
 document.getElementById('message-input').addEventListener('keydown', (e) => {
     if (e.key === 'Enter' && !e.shiftKey) {
@@ -784,8 +895,8 @@ function addSelectedMembers() {
                 contentType: 'application/json',
                 data: JSON.stringify(selectedUserIds),
                 success: function (response) {
-                
-                    channel.members += count;
+                    // Members that were already in the channel are not counted again
+                    channel.members += response.added;
                     // Update the header
                     loadChat(activeChatId, 'group');
                     toggleAddMemberModal();
@@ -885,13 +996,14 @@ document.addEventListener('click', (e) => {
 });
 
 function performSearch(query) {
-    // Parallel fetch for users and channels
-    Promise.all([
-        fetch(`/api/v1/users/search?query=${encodeURIComponent(query)}`).then(res => res.json()),
-        fetch(`/api/chat/channels/search?query=${encodeURIComponent(query)}`).then(res => res.json())
-    ]).then(([foundUsers, foundChannels]) => {
-        renderSearchResults(foundUsers, foundChannels);
-    }).catch(err => {
+    // One request returns both people and channels
+    fetch(`/api/search?query=${encodeURIComponent(query)}&limit=10`)
+        .then(res => res.json())
+        .then(result => {
+            // Ignore responses for text the user has typed past
+            if (searchInput.value.trim() !== query) return;
+            renderSearchResults(result.users || [], result.channels || []);
+        }).catch(err => {
         console.error("Search failed:", err);
     });
 }
@@ -0,0 +1,95 @@
+package com.example.security.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+class BoundedTtlCacheTest {
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntry() {
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(2, Duration.ofMinutes(1));
+        cache.put("a", "1");
+        cache.put("b", "2");
+        // Touching "a" leaves "b" as the eldest
+        cache.get("a");
+        cache.put("c", "3");
+
+        assertThat(cache.get("a")).isEqualTo("1");
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("c")).isEqualTo("3");
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.evictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void expiresEntriesAfterTheTtl() throws InterruptedException {
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10, Duration.ofMillis(20));
+        cache.put("a", "1");
+        assertThat(cache.get("a")).isEqualTo("1");
+
+        Thread.sleep(40);
+
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void overwritingRestartsTheTtl() throws InterruptedException {
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10, Duration.ofMillis(200));
+        cache.put("a", "1");
+        Thread.sleep(120);
+        cache.put("a", "2");
+        Thread.sleep(120);
+
+        assertThat(cache.get("a")).isEqualTo("2");
+    }
+
+    @Test
+    void tracksWeightAcrossPutReplaceEvictAndInvalidate() {
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(2, Duration.ofMinutes(1), String::length);
+        cache.put("a", "xx");
+        cache.put("b", "yyy");
+        assertThat(cache.weight()).isEqualTo(5);
+
+        cache.put("a", "x");
+        assertThat(cache.weight()).isEqualTo(4);
+
+        // Evicts "b", the least recently written
+        cache.put("c", "zzzz");
+        assertThat(cache.weight()).isEqualTo(5);
+
+        cache.invalidate("a");
+        assertThat(cache.weight()).isEqualTo(4);
+
+        cache.invalidateAll();
+        assertThat(cache.weight()).isZero();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void expiredEntriesGiveBackTheirWeight() throws InterruptedException {
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10, Duration.ofMillis(20), String::length);
+        cache.put("a", "xyz");
+        Thread.sleep(40);
+
+        cache.get("a");
+
+        assertThat(cache.weight()).isZero();
+    }
+
+    @Test
+    void countsHitsAndMisses() {
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10, Duration.ofMinutes(1));
+        cache.put("a", "1");
+        cache.get("a");
+        cache.get("a");
+        cache.get("b");
+
+        assertThat(cache.hitCount()).isEqualTo(2);
+        assertThat(cache.missCount()).isEqualTo(1);
+        assertThat(cache.hitRatio()).isEqualTo(2.0 / 3);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.security.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.example.security.dto.MessageResponse;
+import com.example.security.service.ChatService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class ChatControllerTest {
+
+    private final ChatService chatService = mock(ChatService.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ChatController controller = new ChatController();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void exportsEveryPageAsOneJsonLinePerMessage() throws Exception {
+        ReflectionTestUtils.setField(controller, "chatService", chatService);
+        ReflectionTestUtils.setField(controller, "objectMapper", objectMapper);
+        doAnswer(invocation -> {
+            Consumer<List<MessageResponse>> pages = invocation.getArgument(3);
+            pages.accept(List.of(message(11), message(12)));
+            pages.accept(List.of(message(13)));
+            return null;
+        }).when(chatService).streamChannelMessages(eq(7L), eq(11L), eq(3), any());
+
+        ResponseEntity<StreamingResponseBody> response = controller.exportChannelMessages(7L, 11L, 3);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        assertThat(response.getHeaders().getContentType()).hasToString("application/x-ndjson");
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(3);
+        for (int i = 0; i < lines.length; i++) {
+            assertThat(objectMapper.readValue(lines[i], MessageResponse.class).getSequenceNumber())
+                    .isEqualTo(11L + i);
+        }
+    }
+
+    private static MessageResponse message(long sequence) {
+        return new MessageResponse(sequence, "m" + sequence, "sender", "Sender", "", sequence, "", 7L);
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.security.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.Base64;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.security.dto.UserPrincipal;
+import com.example.security.dto.ValidatedToken;
+import com.example.security.model.User;
+import com.example.security.model.Authority.Role;
+import com.example.security.service.JwtService;
+import com.example.security.service.TokenRevocationChecker;
+
+import jakarta.servlet.http.Cookie;
+
+class JwtAuthenticationFilterTest {
+
+    private final JwtService jwtService = spy(new JwtService());
+    private final UserDetailsService userDetailsService = mock(UserDetailsService.class);
+    private final TokenRevocationChecker revocationChecker = mock(TokenRevocationChecker.class);
+    private final JwtAuthenticationFilter filter = new JwtAuthenticationFilter(jwtService, userDetailsService,
+            revocationChecker);
+
+    private final User user = User.builder()
+            .id(UUID.randomUUID())
+            .username("alice")
+            .role(Role.USER)
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(jwtService, "secretKey",
+                Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes()));
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 60_000L);
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", 120_000L);
+        jwtService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void parsesTheTokenOnceForTheWholeRequest() throws Exception {
+        String token = jwtService.generateToken(user);
+        when(userDetailsService.loadUserByUsername("alice")).thenReturn(user);
+        MockHttpServletRequest request = request(token);
+
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        verify(jwtService, times(1)).parseAndValidate(anyString());
+        assertThat(((ValidatedToken) request.getAttribute(ValidatedToken.REQUEST_ATTRIBUTE)).token())
+                .isEqualTo(token);
+        assertThat(authenticatedId()).isEqualTo(user.getId());
+    }
+
+    @Test
+    void statelessPrincipalSkipsTheUserLookup() throws Exception {
+        ReflectionTestUtils.setField(filter, "statelessPrincipal", true);
+        String token = jwtService.generateToken(user);
+
+        filter.doFilter(request(token), new MockHttpServletResponse(), new MockFilterChain());
+
+        verify(jwtService, times(1)).parseAndValidate(anyString());
+        verify(revocationChecker).isRevoked(any(ValidatedToken.class));
+        verifyNoInteractions(userDetailsService);
+        assertThat(authenticatedId()).isEqualTo(user.getId());
+    }
+
+    @Test
+    void leavesInvalidTokensUnauthenticated() throws Exception {
+        filter.doFilter(request("not-a-jwt"), new MockHttpServletResponse(), new MockFilterChain());
+
+        verifyNoInteractions(userDetailsService);
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+    }
+
+    private static MockHttpServletRequest request(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/chat/channels");
+        request.setServletPath("/api/v1/chat/channels");
+        request.setCookies(new Cookie("access_token", token));
+        return request;
+    }
+
+    private static UUID authenticatedId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertThat(authentication).isNotNull();
+        return ((UserPrincipal) authentication.getPrincipal()).getId();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.security.interceptor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import com.example.security.dto.UserPrincipal;
+import com.example.security.service.ChannelMembershipCache;
+
+class ChannelSubscriptionInterceptorTest {
+
+    private static final UUID MEMBER = UUID.randomUUID();
+    private static final UUID OUTSIDER = UUID.randomUUID();
+
+    private final MessageChannel channel = mock(MessageChannel.class);
+    private ChannelSubscriptionInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        ChannelMembershipCache membershipCache = mock(ChannelMembershipCache.class);
+        when(membershipCache.members(5L)).thenReturn(new UUID[] { MEMBER });
+        interceptor = new ChannelSubscriptionInterceptor(membershipCache);
+    }
+
+    @Test
+    void membersMaySubscribeToTheirChannelTopic() {
+        Message<byte[]> message = frame(StompCommand.SUBSCRIBE, "/topic/channel-5", MEMBER);
+
+        assertThat(interceptor.preSend(message, channel)).isSameAs(message);
+    }
+
+    @Test
+    void nonMembersMayNotSubscribeToAChannelTopic() {
+        assertThatThrownBy(() -> interceptor.preSend(frame(StompCommand.SUBSCRIBE, "/topic/channel-5", OUTSIDER),
+                channel)).isInstanceOf(AccessDeniedException.class);
+    }
+
+    @Test
+    void publicTopicsAndOwnQueuesAreOpen() {
+        for (String destination : List.of("/topic/rankings", "/topic/chat", "/queue/chat-user-" + MEMBER)) {
+            Message<byte[]> message = frame(StompCommand.SUBSCRIBE, destination, OUTSIDER);
+            assertThat(interceptor.preSend(message, channel)).isSameAs(message);
+        }
+    }
+
+    @Test
+    void wildcardAndUnknownTopicsAreRejected() {
+        for (String destination : List.of("/topic/#", "/topic/*", "/topic/channel-*", "/topic/channel-#",
+                "/topic/channel-5.x", "/topic/channel-5x", "/topic/channel-", "/topic/other",
+                "/queue/chat-user-*")) {
+            assertThatThrownBy(() -> interceptor.preSend(frame(StompCommand.SUBSCRIBE, destination, MEMBER),
+                    channel))
+                    .as(destination)
+                    .isInstanceOf(AccessDeniedException.class);
+        }
+    }
+
+    @Test
+    void clientsMayOnlySendToTheApplication() {
+        Message<byte[]> toApp = frame(StompCommand.SEND, "/app/chat.send", MEMBER);
+        assertThat(interceptor.preSend(toApp, channel)).isSameAs(toApp);
+
+        assertThatThrownBy(() -> interceptor.preSend(frame(StompCommand.SEND, "/topic/channel-5", MEMBER),
+                channel)).isInstanceOf(AccessDeniedException.class);
+    }
+
+    private static Message<byte[]> frame(StompCommand command, String destination, UUID userId) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        accessor.setDestination(destination);
+        UserPrincipal principal = new UserPrincipal(userId, "user", null, List.of());
+        accessor.setUser(new UsernamePasswordAuthenticationToken(principal, null, List.of()));
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.security.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+
+import com.example.security.model.User;
+import com.example.security.model.Authority.Role;
+import com.example.security.model.Authority.Token;
+
+import jakarta.persistence.EntityManager;
+
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false"
+})
+class UserRepositoryTest {
+
+    private static final int TOKENS = 1000;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+    private User alice;
+    private User bob;
+
+    @BeforeEach
+    void setUp() {
+        alice = persist("alice", "Alice Example");
+        bob = persist("bob", "Bob Example");
+        persist("carol", "Carol Other");
+        for (int i = 0; i < TOKENS; i++) {
+            entityManager.persist(Token.builder().token(Token.digest("jwt-" + i)).user(alice).build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void loadsTokensOnlyWhenNavigated() {
+        User user = userRepository.findById(alice.getId()).orElseThrow();
+
+        assertThat(Hibernate.isInitialized(user.getTokens())).isFalse();
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(1);
+        assertThat(statistics.getCollectionLoadCount()).isZero();
+
+        assertThat(user.getTokens()).hasSize(TOKENS);
+        assertThat(statistics.getCollectionLoadCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(1 + TOKENS);
+    }
+
+    @Test
+    void comparingUsersLeavesTokensUnloaded() {
+        User user = userRepository.findById(alice.getId()).orElseThrow();
+
+        assertThat(user).isNotEqualTo(bob);
+        assertThat(user.hashCode()).isEqualTo(userRepository.findById(alice.getId()).orElseThrow().hashCode());
+        assertThat(user.toString()).contains("alice");
+
+        assertThat(Hibernate.isInitialized(user.getTokens())).isFalse();
+    }
+
+    @Test
+    void accountViewReadsOneRowAndNoEntities() {
+        UserAccountView account = userRepository.findAccountByUsername("alice").orElseThrow();
+
+        assertThat(account.getId()).isEqualTo(alice.getId());
+        assertThat(account.getName()).isEqualTo("Alice Example");
+        assertThat(account.getRole()).isEqualTo(Role.USER);
+        assertThat(account.isEnabled()).isTrue();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(statistics.getCollectionLoadCount()).isZero();
+    }
+
+    @Test
+    void profilesByIdReadOnlyTheRequestedUsers() {
+        List<UserProfileView> profiles = userRepository.findProfilesByIdIn(List.of(alice.getId(), bob.getId()));
+
+        assertThat(profiles).extracting(UserProfileView::getId)
+                .containsExactlyInAnyOrder(alice.getId(), bob.getId());
+        assertThat(profiles).extracting(UserProfileView::getName)
+                .containsExactlyInAnyOrder("Alice Example", "Bob Example");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void profileSearchAppliesTheLimitInSql() {
+        List<UserProfileView> page = userRepository
+                .findProfilesByNameContainingIgnoreCaseOrEmailContainingIgnoreCase("EXAMPLE", "EXAMPLE",
+                        PageRequest.of(0, 1));
+        List<UserProfileView> all = userRepository
+                .findProfilesByNameContainingIgnoreCaseOrEmailContainingIgnoreCase("example", "example",
+                        PageRequest.of(0, 10));
+
+        assertThat(page).hasSize(1);
+        // carol only matches through her email
+        assertThat(all).extracting(UserProfileView::getUsername).containsExactlyInAnyOrder("alice", "bob", "carol");
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    private User persist(String username, String name) {
+        User user = User.builder()
+                .id(UUID.randomUUID())
+                .username(username)
+                .email(username + "@example.com")
+                .name(name)
+                .password("secret")
+                .enabled(true)
+                .accountNonLocked(true)
+                .accountNonExpired(true)
+                .credentialsNonExpired(true)
+                .role(Role.USER)
+                .build();
+        entityManager.persist(user);
+        return user;
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.security.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class PrefixSearchIndexTest {
+
+    @Test
+    void findsDocumentsByWordPrefixes() {
+        PrefixSearchIndex<String> index = new PrefixSearchIndex<>();
+        index.put("1", "José Doe", "José Doe jose.doe@mail.com");
+        index.put("2", "Joanna Smith", "Joanna Smith");
+
+        assertThat(index.search("jo", 10)).containsExactly("José Doe", "Joanna Smith");
+        assertThat(index.search("JOSE", 10)).containsExactly("José Doe");
+        assertThat(index.search("smi joa", 10)).containsExactly("Joanna Smith");
+        assertThat(index.search("mail", 10)).containsExactly("José Doe");
+        assertThat(index.search("xyz", 10)).isEmpty();
+    }
+
+    @Test
+    void checksQueryWordsLongerThanTheIndexedPrefix() {
+        PrefixSearchIndex<String> index = new PrefixSearchIndex<>();
+        index.put("1", "Alexander", "Alexander");
+        index.put("2", "Alexandra", "Alexandra");
+
+        assertThat(index.search("alexandr", 10)).containsExactly("Alexander", "Alexandra");
+        assertThat(index.search("alexandra", 10)).containsExactly("Alexandra");
+    }
+
+    @Test
+    void leadingWordMatchesComeFirstThenRank() {
+        PrefixSearchIndex<String> index = new PrefixSearchIndex<>();
+        index.loadAll(List.of(
+                new PrefixSearchIndex.Entry<>("1", "Mary Ann", "Mary Ann"),
+                new PrefixSearchIndex.Entry<>("2", "Ann Lee", "Ann Lee"),
+                new PrefixSearchIndex.Entry<>("3", "Annabel", "Annabel")));
+
+        assertThat(index.search("ann", 10)).containsExactly("Ann Lee", "Annabel", "Mary Ann");
+        assertThat(index.search("ann", 1)).containsExactly("Ann Lee");
+    }
+
+    @Test
+    void updateReplacesTheOldWords() {
+        PrefixSearchIndex<String> index = new PrefixSearchIndex<>();
+        assertThat(index.put("1", "Old Name", "Old Name")).isTrue();
+
+        assertThat(index.put("1", "New Name", "New Name")).isTrue();
+
+        assertThat(index.search("old", 10)).isEmpty();
+        assertThat(index.search("new", 10)).containsExactly("New Name");
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void putReportsUnchangedDocuments() {
+        PrefixSearchIndex<String> index = new PrefixSearchIndex<>();
+        index.put("1", "Same", "Same");
+
+        assertThat(index.put("1", "Same", "Same")).isFalse();
+        assertThat(index.put("1", "Same, new value", "Same")).isTrue();
+        assertThat(index.search("same", 10)).containsExactly("Same, new value");
+    }
+
+    @Test
+    void removeDropsTheDocument() {
+        PrefixSearchIndex<String> index = new PrefixSearchIndex<>();
+        index.put("1", "Alice", "Alice");
+        index.put("2", "Alina", "Alina");
+
+        index.remove("1");
+
+        assertThat(index.search("ali", 10)).containsExactly("Alina");
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void filterSkipsValuesWhileScanning() {
+        PrefixSearchIndex<String> index = new PrefixSearchIndex<>();
+        index.put("1", "Team A", "Team A");
+        index.put("2", "Team B", "Team B");
+
+        assertThat(index.search("team", 1, value -> value.endsWith("B"))).containsExactly("Team B");
+    }
+
+    @Test
+    void loadSkipsKeysChangedAfterItStarted() {
+        PrefixSearchIndex<String> index = new PrefixSearchIndex<>();
+        index.beginLoad();
+        // Live changes that happen while the loader reads its snapshot
+        index.remove("1");
+        index.put("2", "Bob Renamed", "Bob Renamed");
+
+        index.loadAll(List.of(
+                new PrefixSearchIndex.Entry<>("1", "Deleted Carol", "Deleted Carol"),
+                new PrefixSearchIndex.Entry<>("2", "Bob", "Bob"),
+                new PrefixSearchIndex.Entry<>("3", "Dave", "Dave")));
+
+        assertThat(index.search("carol", 10)).isEmpty();
+        assertThat(index.search("bob", 10)).containsExactly("Bob Renamed");
+        assertThat(index.search("dave", 10)).containsExactly("Dave");
+
+        // Later changes are no longer tracked
+        index.remove("3");
+        index.loadAll(List.of(new PrefixSearchIndex.Entry<>("3", "Dave", "Dave")));
+        assertThat(index.search("dave", 10)).containsExactly("Dave");
+    }
+
+    @Test
+    void compactsTombstonesAndKeepsRanks() {
+        PrefixSearchIndex<String> index = new PrefixSearchIndex<>();
+        index.loadAll(List.of(
+                new PrefixSearchIndex.Entry<>("first", "Zed First", "Zed First"),
+                new PrefixSearchIndex.Entry<>("second", "Zed Second", "Zed Second")));
+
+        for (int i = 0; i < 5000; i++) {
+            index.put("renamed", "Name " + i, "Name " + i);
+        }
+
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(index.slots()).isLessThan(2000);
+        assertThat(index.search("name", 10)).containsExactly("Name 4999");
+        assertThat(index.search("zed", 10)).containsExactly("Zed First", "Zed Second");
+    }
+
+    @Test
+    void keepsWritesMadeWhileCompacting() throws Exception {
+        PrefixSearchIndex<String> index = new PrefixSearchIndex<>();
+        // Renames keep crossing the compaction threshold while the other
+        // thread adds and removes keys
+        Thread renames = new Thread(() -> {
+            for (int i = 0; i < 20_000; i++) {
+                index.put("renamed", "Name " + i, "Name " + i);
+            }
+        });
+        Thread keys = new Thread(() -> {
+            for (int i = 0; i < 3000; i++) {
+                index.put("k" + i, "Key " + i, "Key " + i);
+                if (i % 2 == 0) {
+                    index.remove("k" + i);
+                }
+            }
+        });
+        renames.start();
+        keys.start();
+        renames.join();
+        keys.join();
+
+        assertThat(index.size()).isEqualTo(1501);
+        assertThat(index.search("name", 10)).containsExactly("Name 19999");
+        assertThat(index.search("key", 2000)).hasSize(1500).allMatch(value -> {
+            int number = Integer.parseInt(value.substring(4));
+            return number % 2 == 1;
+        });
+        assertThat(index.search("key 1", 3)).containsExactly("Key 1", "Key 11", "Key 13");
+    }
+}
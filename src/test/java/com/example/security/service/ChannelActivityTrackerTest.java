@@ -0,0 +1,57 @@
+package com.example.security.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+class ChannelActivityTrackerTest {
+
+    private final RecordingJdbcTemplate jdbcTemplate = new RecordingJdbcTemplate();
+    private final ChannelActivityTracker tracker = new ChannelActivityTracker(jdbcTemplate, 60_000);
+
+    @Test
+    void writesTheNewestActivityPerChannelInOneBatch() throws Exception {
+        Instant start = Instant.parse("2026-01-01T00:00:00Z");
+        tracker.start();
+        tracker.touch(1L, start.plusSeconds(5));
+        tracker.touch(1L, start);
+        tracker.touch(2L, start.plusSeconds(1));
+        tracker.touch(2L, start.plusSeconds(3));
+        tracker.touch(3L, null);
+
+        tracker.stop();
+
+        assertThat(jdbcTemplate.batches).hasSize(1);
+        assertThat(jdbcTemplate.batches.get(0))
+                .extracting(row -> row[1], row -> row[0])
+                .containsExactlyInAnyOrder(
+                        tuple(1L, Timestamp.from(start.plusSeconds(5))),
+                        tuple(2L, Timestamp.from(start.plusSeconds(3))));
+    }
+
+    @Test
+    void skipsTheBatchWithoutActivity() throws Exception {
+        tracker.start();
+        tracker.stop();
+
+        assertThat(jdbcTemplate.batches).isEmpty();
+    }
+
+    private static class RecordingJdbcTemplate extends JdbcTemplate {
+
+        final List<List<Object[]>> batches = new ArrayList<>();
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            batches.add(new ArrayList<>(batchArgs));
+            return new int[batchArgs.size()];
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.security.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ChannelHistoryPurgerTest {
+
+    private final StubJdbcTemplate jdbcTemplate = new StubJdbcTemplate();
+    private final ChannelHistoryPurger purger = new ChannelHistoryPurger(jdbcTemplate, new SimpleMeterRegistry(),
+            100, 0, 200);
+
+    @AfterEach
+    void tearDown() throws Exception {
+        purger.stop();
+    }
+
+    @Test
+    void purgesBothTablesInChunksAndClearsThePendingRowAfterTheRecheck() throws Exception {
+        jdbcTemplate.rows.put("messages:7", 250);
+        jdbcTemplate.rows.put("message_search:7", 120);
+        purger.markPending(7L);
+        assertThat(jdbcTemplate.pending).containsExactly(7L);
+
+        purger.purge(7L);
+        await(() -> jdbcTemplate.rows.get("messages:7") == 0 && jdbcTemplate.rows.get("message_search:7") == 0);
+        // A message still in flight when the channel was deleted
+        jdbcTemplate.rows.put("messages:7", 1);
+
+        await(() -> jdbcTemplate.pending.isEmpty());
+        assertThat(jdbcTemplate.rows.get("messages:7")).isZero();
+        // Three chunks of 100 for the 250 rows, one for the straggler
+        assertThat(jdbcTemplate.deletes.stream().filter(key -> key.equals("messages:7")).count())
+                .isEqualTo(4);
+    }
+
+    @Test
+    void resumesOnlyThePendingChannelsOnStartup() throws Exception {
+        jdbcTemplate.pending.add(3L);
+        jdbcTemplate.rows.put("messages:3", 10);
+        jdbcTemplate.rows.put("messages:4", 10);
+
+        purger.resumePending();
+
+        await(() -> jdbcTemplate.pending.isEmpty());
+        assertThat(jdbcTemplate.rows.get("messages:3")).isZero();
+        assertThat(jdbcTemplate.rows.get("messages:4")).isEqualTo(10);
+    }
+
+    @Test
+    void keepsTheChannelPendingWhenAPassFails() throws Exception {
+        jdbcTemplate.pending.add(5L);
+        jdbcTemplate.failing = true;
+
+        purger.purge(5L);
+
+        // The first pass and the recheck both fail
+        await(() -> jdbcTemplate.deletes.size() >= 2);
+        Thread.sleep(50);
+        assertThat(jdbcTemplate.pending).containsExactly(5L);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    /**
+     * Keeps a row count per table and channel, and the pending purges.
+     */
+    private static class StubJdbcTemplate extends JdbcTemplate {
+
+        final Map<String, Integer> rows = new ConcurrentHashMap<>();
+        final List<Long> pending = new CopyOnWriteArrayList<>();
+        final List<String> deletes = new CopyOnWriteArrayList<>();
+        volatile boolean failing;
+
+        @Override
+        public <T> List<T> queryForList(String sql, Class<T> elementType) {
+            return pending.stream().map(elementType::cast).toList();
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            long channelId = (Long) args[0];
+            if (sql.startsWith("INSERT IGNORE INTO pending_channel_purges")) {
+                if (!pending.contains(channelId)) {
+                    pending.add(channelId);
+                }
+                return 1;
+            }
+            if (sql.startsWith("DELETE FROM pending_channel_purges")) {
+                return pending.remove(channelId) ? 1 : 0;
+            }
+            String table = sql.substring("DELETE FROM ".length(), sql.indexOf(' ', "DELETE FROM ".length()));
+            String key = table + ":" + channelId;
+            deletes.add(key);
+            if (failing) {
+                throw new IllegalStateException("database down");
+            }
+            int limit = (Integer) args[1];
+            int deleted = Math.min(rows.getOrDefault(key, 0), limit);
+            rows.merge(key, -deleted, Integer::sum);
+            return deleted;
+        }
+    }
+}
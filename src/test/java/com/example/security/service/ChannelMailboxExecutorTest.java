@@ -0,0 +1,116 @@
+package com.example.security.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ChannelMailboxExecutorTest {
+
+    private ChannelMailboxExecutor executor;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        executor.stop();
+    }
+
+    @Test
+    void runsTasksOfOneKeyInSubmissionOrder() throws Exception {
+        executor = new ChannelMailboxExecutor(new SimpleMeterRegistry(), 10_000);
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+
+        for (int i = 0; i < 1000; i++) {
+            int value = i;
+            results.add(executor.submit(7L, () -> {
+                order.add(value);
+                return value;
+            }));
+        }
+
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+        for (int i = 0; i < results.size(); i++) {
+            assertThat(results.get(i).get()).isEqualTo(i);
+        }
+        assertThat(order).hasSize(1000).isSorted();
+    }
+
+    @Test
+    void aBlockedKeyDoesNotHoldBackOtherKeys() throws Exception {
+        executor = new ChannelMailboxExecutor(new SimpleMeterRegistry(), 10);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> blocked = executor.submit(1L, () -> await(release));
+
+        assertThat(executor.submit(2L, () -> "other").get(5, TimeUnit.SECONDS)).isEqualTo("other");
+        assertThat(blocked).isNotDone();
+
+        release.countDown();
+        assertThat(blocked.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void rejectsSubmitsBeyondMaxPendingUntilTasksFinish() throws Exception {
+        executor = new ChannelMailboxExecutor(new SimpleMeterRegistry(), 2);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> first = executor.submit(1L, () -> await(release));
+        CompletableFuture<Boolean> second = executor.submit(2L, () -> await(release));
+
+        assertThatThrownBy(() -> executor.submit(3L, () -> true))
+                .isInstanceOf(RejectedExecutionException.class);
+
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        assertThat(submitWhenAccepted(3L).get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void aFailedTaskDoesNotStopTheTasksQueuedBehindIt() throws Exception {
+        executor = new ChannelMailboxExecutor(new SimpleMeterRegistry(), 10);
+        CompletableFuture<String> failed = executor.submit(1L, () -> {
+            throw new IllegalStateException("boom");
+        });
+        CompletableFuture<String> next = executor.submit(1L, () -> "next");
+
+        assertThat(next.get(5, TimeUnit.SECONDS)).isEqualTo("next");
+        assertThatThrownBy(failed::get)
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    // A permit is released just after the task's future completes
+    private CompletableFuture<Boolean> submitWhenAccepted(Object key) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            try {
+                return executor.submit(key, () -> true);
+            } catch (RejectedExecutionException e) {
+                if (System.nanoTime() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
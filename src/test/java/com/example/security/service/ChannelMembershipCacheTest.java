@@ -0,0 +1,117 @@
+package com.example.security.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import com.example.security.model.Chatting.ChannelType;
+import com.example.security.redisSchema.RedisSchema;
+import com.example.security.repository.ChatRepo.ChannelRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ChannelMembershipCacheTest {
+
+    private static final long CHANNEL = 3L;
+    private static final UUID ALICE = UUID.randomUUID();
+    private static final UUID BOB = UUID.randomUUID();
+
+    private ChannelRepository channelRepository;
+    private ChannelMembershipCache cache;
+
+    @BeforeEach
+    void setUp() {
+        channelRepository = mock(ChannelRepository.class);
+        cache = new ChannelMembershipCache(channelRepository, mock(StringRedisTemplate.class),
+                mock(RedisMessageListenerContainer.class), new SimpleMeterRegistry(), 100, 3600, false);
+    }
+
+    @Test
+    void loadsOnceUntilInvalidated() {
+        when(channelRepository.findMemberIdsByChannelId(CHANNEL)).thenReturn(List.of(ALICE));
+
+        cache.members(CHANNEL);
+        assertThat(cache.members(CHANNEL)).containsExactly(ALICE);
+        verify(channelRepository, times(1)).findMemberIdsByChannelId(CHANNEL);
+
+        cache.invalidate(CHANNEL);
+        cache.members(CHANNEL);
+        verify(channelRepository, times(2)).findMemberIdsByChannelId(CHANNEL);
+    }
+
+    @Test
+    void loadRacingAnInvalidationIsNotKept() {
+        AtomicReference<List<UUID>> committed = new AtomicReference<>(List.of(ALICE));
+        when(channelRepository.findMemberIdsByChannelId(CHANNEL)).thenAnswer(invocation -> {
+            List<UUID> snapshot = committed.get();
+            // A writer adds Bob and invalidates after this read
+            if (!committed.get().contains(BOB)) {
+                committed.set(List.of(ALICE, BOB));
+                cache.invalidate(CHANNEL);
+            }
+            return snapshot;
+        });
+
+        assertThat(cache.members(CHANNEL)).containsExactly(ALICE);
+        assertThat(cache.members(CHANNEL)).containsExactly(ALICE, BOB);
+    }
+
+    @Test
+    void joinsAndLeavesDropTheUsersGroupChannels() {
+        when(channelRepository.findChannelIdsByUserIdAndType(ALICE, ChannelType.GROUP))
+                .thenReturn(List.of(1L), List.of(1L, CHANNEL), List.of(1L));
+
+        assertThat(cache.groupChannels(ALICE)).containsExactly(1L);
+        assertThat(cache.groupChannels(ALICE)).containsExactly(1L);
+
+        // Bob joining doesn't touch Alice's entry
+        cache.invalidate(CHANNEL, List.of(BOB));
+        assertThat(cache.groupChannels(ALICE)).containsExactly(1L);
+
+        cache.invalidate(CHANNEL, List.of(ALICE));
+        assertThat(cache.groupChannels(ALICE)).containsExactlyInAnyOrder(1L, CHANNEL);
+
+        cache.invalidate(CHANNEL, List.of(ALICE));
+        assertThat(cache.groupChannels(ALICE)).containsExactly(1L);
+        verify(channelRepository, times(3)).findChannelIdsByUserIdAndType(ALICE, ChannelType.GROUP);
+    }
+
+    @Test
+    void broadcastsTheChangedUsersAndEvictsThemOnOtherNodes() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        RedisMessageListenerContainer listenerContainer = mock(RedisMessageListenerContainer.class);
+        cache = new ChannelMembershipCache(channelRepository, redisTemplate, listenerContainer,
+                new SimpleMeterRegistry(), 100, 3600, true);
+        cache.subscribe();
+        ArgumentCaptor<MessageListener> listener = ArgumentCaptor.forClass(MessageListener.class);
+        verify(listenerContainer).addMessageListener(listener.capture(), any(ChannelTopic.class));
+        when(channelRepository.findChannelIdsByUserIdAndType(BOB, ChannelType.GROUP))
+                .thenReturn(List.of(), List.of(CHANNEL));
+
+        cache.invalidate(CHANNEL, List.of(ALICE, BOB));
+        verify(redisTemplate).convertAndSend(RedisSchema.getMembershipInvalidationChannel(),
+                CHANNEL + ":" + ALICE + "," + BOB);
+
+        assertThat(cache.groupChannels(BOB)).isEmpty();
+        Message message = mock(Message.class);
+        when(message.getBody()).thenReturn((CHANNEL + ":" + BOB).getBytes());
+        listener.getValue().onMessage(message, null);
+        assertThat(cache.groupChannels(BOB)).containsExactly(CHANNEL);
+    }
+}
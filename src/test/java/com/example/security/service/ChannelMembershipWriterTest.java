@@ -0,0 +1,111 @@
+package com.example.security.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import com.example.security.model.Chatting.ChannelType;
+import com.example.security.repository.ChatRepo.ChannelRepository;
+
+class ChannelMembershipWriterTest {
+
+    private static final long CHANNEL_ID = 42L;
+
+    private final StubJdbcTemplate jdbcTemplate = new StubJdbcTemplate();
+    private final ChannelRepository channelRepository = mock(ChannelRepository.class);
+    private final ChannelMembershipWriter writer = new ChannelMembershipWriter(jdbcTemplate, channelRepository);
+
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+    private final UUID carol = UUID.randomUUID();
+
+    @Test
+    void countsAnIgnoredRowAsSkipped() {
+        when(channelRepository.findMemberIdsByChannelId(CHANNEL_ID)).thenReturn(List.of());
+        jdbcTemplate.users = Set.of(alice.toString(), bob.toString());
+        // A concurrent add inserted bob first
+        jdbcTemplate.counts = new int[] { 1, 0 };
+
+        ChannelMembershipWriter.Result result = add(alice, bob);
+
+        assertThat(result.added()).containsExactly(alice);
+        assertThat(result.skipped()).isEqualTo(1);
+        assertThat(result.invalid()).isZero();
+    }
+
+    @Test
+    void countsSuccessNoInfoAsInserted() {
+        when(channelRepository.findMemberIdsByChannelId(CHANNEL_ID)).thenReturn(List.of());
+        jdbcTemplate.users = Set.of(alice.toString(), bob.toString());
+        jdbcTemplate.counts = new int[] { Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO };
+
+        ChannelMembershipWriter.Result result = add(alice, bob);
+
+        assertThat(result.added()).containsExactly(alice, bob);
+        assertThat(result.skipped()).isZero();
+    }
+
+    @Test
+    void insertsOnlyNewExistingUsers() {
+        when(channelRepository.findMemberIdsByChannelId(CHANNEL_ID)).thenReturn(List.of(alice));
+        jdbcTemplate.users = Set.of(alice.toString(), bob.toString());
+        jdbcTemplate.counts = new int[] { 1 };
+
+        ChannelMembershipWriter.Result result = writer.addMembers(CHANNEL_ID, ChannelType.GROUP,
+                List.of(alice.toString(), bob.toString(), bob.toString(), carol.toString(), "not-a-uuid"),
+                Instant.now());
+
+        assertThat(jdbcTemplate.inserted).containsExactly(bob);
+        assertThat(result.added()).containsExactly(bob);
+        // alice is a member already, bob was repeated
+        assertThat(result.skipped()).isEqualTo(2);
+        // carol is no user
+        assertThat(result.invalid()).isEqualTo(2);
+    }
+
+    private ChannelMembershipWriter.Result add(UUID... userIds) {
+        List<String> ids = new ArrayList<>();
+        for (UUID userId : userIds) {
+            ids.add(userId.toString());
+        }
+        return writer.addMembers(CHANNEL_ID, ChannelType.GROUP, ids, Instant.now());
+    }
+
+    private static class StubJdbcTemplate extends JdbcTemplate {
+
+        Set<String> users = Set.of();
+        int[] counts = new int[0];
+        final List<Object> inserted = new ArrayList<>();
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+            List<T> found = new ArrayList<>();
+            for (Object id : args) {
+                if (users.contains(id)) {
+                    found.add((T) id);
+                }
+            }
+            return found;
+        }
+
+        @Override
+        public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                ParameterizedPreparedStatementSetter<T> pss) {
+            inserted.addAll(batchArgs);
+            return new int[][] { counts };
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.security.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.example.security.model.Chatting.Channel;
+import com.example.security.model.Chatting.ChannelType;
+import com.example.security.model.Chatting.ChatMemmbers;
+import com.example.security.redisSchema.RedisSchema;
+import com.example.security.repository.ChatRepo.ChannelHeader;
+import com.example.security.repository.ChatRepo.ChannelRepository;
+
+import jakarta.persistence.EntityManager;
+
+class ChannelResolverTest {
+
+    private static final long CHANNEL_ID = 7L;
+
+    private final ChannelRepository channelRepository = mock(ChannelRepository.class);
+    private final MessageSequenceGenerator sequenceGenerator = mock(MessageSequenceGenerator.class);
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    private final ChannelResolver resolver = new ChannelResolver(channelRepository, sequenceGenerator,
+            mock(PlatformTransactionManager.class), redisTemplate, mock(RedisMessageListenerContainer.class),
+            100, 3600, 30, true);
+
+    @Test
+    void createdChannelIsNoLongerMissing() {
+        when(channelRepository.findHeaderById(CHANNEL_ID)).thenReturn(Optional.empty());
+        assertThat(resolver.findById(CHANNEL_ID)).isNull();
+        assertThat(resolver.findById(CHANNEL_ID)).isNull();
+        verify(channelRepository, times(1)).findHeaderById(CHANNEL_ID);
+
+        ChannelHeader team = header("team", ChannelType.GROUP);
+        when(channelRepository.findHeaderById(CHANNEL_ID)).thenReturn(Optional.of(team));
+        resolver.created(CHANNEL_ID);
+
+        assertThat(resolver.findById(CHANNEL_ID)).isEqualTo(
+                new ChannelResolver.ResolvedChannel(CHANNEL_ID, "team", ChannelType.GROUP));
+        verify(redisTemplate).convertAndSend(RedisSchema.getChannelInvalidationChannel(), "7");
+    }
+
+    @Test
+    void groupsAreToldByTypeNotName() {
+        ChannelHeader group = header("1on1:lookalike", ChannelType.GROUP);
+        ChannelHeader direct = header("direct", ChannelType.DIRECT);
+        when(channelRepository.findHeaderById(CHANNEL_ID)).thenReturn(Optional.of(group));
+        when(channelRepository.findHeaderById(8L)).thenReturn(Optional.of(direct));
+
+        assertThat(resolver.isGroup(CHANNEL_ID)).isTrue();
+        assertThat(resolver.isGroup(8L)).isFalse();
+        assertThat(resolver.isGroup(9L)).isFalse();
+    }
+
+    @Test
+    void createsDirectChannelsWithTypeAndCounterpartOnBothMemberships() {
+        UUID alice = UUID.randomUUID();
+        UUID bob = UUID.randomUUID();
+        EntityManager entityManager = mock(EntityManager.class);
+        ReflectionTestUtils.setField(resolver, "entityManager", entityManager);
+        when(sequenceGenerator.generateOneOnOneChannelId(alice.toString(), bob.toString())).thenReturn("1on1:a:b");
+        when(channelRepository.findByName("1on1:a:b")).thenReturn(Optional.empty());
+        when(channelRepository.save(any(Channel.class))).thenAnswer(invocation -> {
+            Channel channel = invocation.getArgument(0);
+            channel.setId(CHANNEL_ID);
+            return channel;
+        });
+
+        assertThat(resolver.resolveDirect(alice.toString(), bob.toString())).isEqualTo(CHANNEL_ID);
+
+        ArgumentCaptor<Channel> channel = ArgumentCaptor.forClass(Channel.class);
+        verify(channelRepository).save(channel.capture());
+        assertThat(channel.getValue().getType()).isEqualTo(ChannelType.DIRECT);
+        ArgumentCaptor<ChatMemmbers> members = ArgumentCaptor.forClass(ChatMemmbers.class);
+        verify(entityManager, times(2)).persist(members.capture());
+        assertThat(members.getAllValues())
+                .extracting(ChatMemmbers::getUser, ChatMemmbers::getCounterpart, ChatMemmbers::getChannelType)
+                .containsExactly(tuple(alice, bob, ChannelType.DIRECT), tuple(bob, alice, ChannelType.DIRECT));
+        assertThat(members.getAllValues()).allSatisfy(member -> {
+            assertThat(member.getChannel()).isEqualTo(CHANNEL_ID);
+            assertThat(member.getLastActivityAt()).isEqualTo(channel.getValue().getCreatedAt());
+        });
+        // Served from the cache from now on
+        assertThat(resolver.isGroup(CHANNEL_ID)).isFalse();
+        verify(channelRepository, never()).findHeaderById(CHANNEL_ID);
+    }
+
+    private static ChannelHeader header(String name, ChannelType type) {
+        ChannelHeader header = mock(ChannelHeader.class);
+        when(header.getName()).thenReturn(name);
+        when(header.getType()).thenReturn(type);
+        return header;
+    }
+}
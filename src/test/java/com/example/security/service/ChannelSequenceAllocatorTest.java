@@ -0,0 +1,154 @@
+package com.example.security.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class ChannelSequenceAllocatorTest {
+
+    private static final long CHANNEL = 7L;
+    private static final long BLOCK_SIZE = 3;
+
+    private CounterJdbcTemplate jdbcTemplate;
+    private ChannelSequenceAllocator allocator;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new CounterJdbcTemplate();
+        jdbcTemplate.counters.put(CHANNEL, 0L);
+        allocator = allocator(true);
+    }
+
+    @Test
+    void leasesANewBlockOnlyWhenTheCurrentOneIsUsedUp() {
+        assertThat(allocator.next(CHANNEL)).isEqualTo(1);
+        assertThat(allocator.next(CHANNEL)).isEqualTo(2);
+        assertThat(allocator.next(CHANNEL)).isEqualTo(3);
+        assertThat(jdbcTemplate.updates).hasValue(1);
+
+        assertThat(allocator.next(CHANNEL)).isEqualTo(4);
+        assertThat(jdbcTemplate.updates).hasValue(2);
+    }
+
+    @Test
+    void continuesAfterBlocksLeasedByOtherNodes() {
+        allocator.next(CHANNEL);
+        // Another node leases the next block
+        jdbcTemplate.counters.merge(CHANNEL, BLOCK_SIZE, Long::sum);
+        allocator.next(CHANNEL);
+        allocator.next(CHANNEL);
+
+        assertThat(allocator.next(CHANNEL)).isEqualTo(7);
+    }
+
+    @Test
+    void takesEveryNumberFromTheRowWithSeveralNodes() {
+        ChannelSequenceAllocator nodeA = allocator(false);
+        ChannelSequenceAllocator nodeB = allocator(false);
+
+        assertThat(nodeA.next(CHANNEL)).isEqualTo(1);
+        assertThat(nodeB.next(CHANNEL)).isEqualTo(2);
+        assertThat(nodeA.next(CHANNEL)).isEqualTo(3);
+        assertThat(jdbcTemplate.updates).hasValue(3);
+        assertThat(nodeA.initialCounter()).isZero();
+    }
+
+    @Test
+    void seededChannelUsesItsFirstBlockWithoutLeasing() {
+        assertThat(allocator.initialCounter()).isEqualTo(BLOCK_SIZE);
+        jdbcTemplate.counters.put(CHANNEL, allocator.initialCounter());
+        allocator.seed(CHANNEL);
+
+        assertThat(allocator.next(CHANNEL)).isEqualTo(1);
+        assertThat(allocator.next(CHANNEL)).isEqualTo(2);
+        assertThat(allocator.next(CHANNEL)).isEqualTo(3);
+        assertThat(jdbcTemplate.updates).hasValue(0);
+
+        assertThat(allocator.next(CHANNEL)).isEqualTo(4);
+    }
+
+    @Test
+    void seedAfterALeaseKeepsTheLeasedBlock() {
+        jdbcTemplate.counters.put(CHANNEL, allocator.initialCounter());
+        // A send got in between the commit and the seed
+        assertThat(allocator.next(CHANNEL)).isEqualTo(4);
+
+        allocator.seed(CHANNEL);
+
+        assertThat(allocator.next(CHANNEL)).isEqualTo(5);
+    }
+
+    @Test
+    void releasedChannelLeasesAgain() {
+        allocator.next(CHANNEL);
+        allocator.release(CHANNEL);
+
+        assertThat(allocator.next(CHANNEL)).isEqualTo(4);
+    }
+
+    @Test
+    void failsForMissingChannel() {
+        assertThatThrownBy(() -> allocator.next(99L))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Channel not found!");
+        assertThatThrownBy(() -> allocator(false).next(99L))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Channel not found!");
+    }
+
+    private ChannelSequenceAllocator allocator(boolean singleNode) {
+        return new ChannelSequenceAllocator(jdbcTemplate, mock(PlatformTransactionManager.class), singleNode,
+                BLOCK_SIZE);
+    }
+
+    // Plays the channels table: the lease UPDATE bumps a counter and returns
+    // it as the generated key
+    private static class CounterJdbcTemplate extends JdbcTemplate {
+
+        final Map<Long, Long> counters = new ConcurrentHashMap<>();
+        final AtomicInteger updates = new AtomicInteger();
+
+        @Override
+        public int update(PreparedStatementCreator creator, KeyHolder keyHolder) {
+            long[] params = new long[2];
+            try {
+                PreparedStatement statement = mock(PreparedStatement.class);
+                doAnswer(invocation -> {
+                    params[(Integer) invocation.getArgument(0) - 1] = invocation.getArgument(1);
+                    return null;
+                }).when(statement).setLong(anyInt(), anyLong());
+                Connection connection = mock(Connection.class);
+                when(connection.prepareStatement(anyString(), anyInt())).thenReturn(statement);
+                creator.createPreparedStatement(connection);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            updates.incrementAndGet();
+            Long counter = counters.computeIfPresent(params[1], (id, value) -> value + params[0]);
+            if (counter == null) {
+                return 0;
+            }
+            keyHolder.getKeyList().add(Map.of("GENERATED_KEY", counter));
+            return 1;
+        }
+    }
+}
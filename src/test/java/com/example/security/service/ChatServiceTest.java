@@ -0,0 +1,262 @@
+package com.example.security.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.security.dto.AddMembersResponse;
+import com.example.security.dto.ConversationResponse;
+import com.example.security.dto.MessageResponse;
+import com.example.security.dto.SendingMessageRequest;
+import com.example.security.model.Chatting.Channel;
+import com.example.security.model.Chatting.ChannelType;
+import com.example.security.model.Chatting.Message;
+import com.example.security.model.User;
+import com.example.security.repository.UserRepository;
+import com.example.security.repository.ChatRepo.ChannelRepository;
+import com.example.security.repository.ChatRepo.ChatRepository;
+import com.example.security.repository.ChatRepo.ConversationRow;
+
+import jakarta.persistence.EntityManager;
+
+class ChatServiceTest {
+
+    private static final long CHANNEL_ID = 7L;
+
+    private final ChatRepository chatRepository = mock(ChatRepository.class);
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+    private final MessageSequenceGenerator sequenceGenerator = mock(MessageSequenceGenerator.class);
+    private final ChannelRepository channelRepository = mock(ChannelRepository.class);
+    private final MessageWriteBehindQueue writeBehindQueue = mock(MessageWriteBehindQueue.class);
+    private final SenderProfileResolver senderProfileResolver = mock(SenderProfileResolver.class);
+    private final RecentMessageCache recentMessageCache = mock(RecentMessageCache.class);
+    private final ChannelMembershipCache membershipCache = mock(ChannelMembershipCache.class);
+    private final StompFanoutSender fanoutSender = mock(StompFanoutSender.class);
+    private final ChannelResolver channelResolver = mock(ChannelResolver.class);
+    private final ChannelHistoryPurger historyPurger = mock(ChannelHistoryPurger.class);
+    private final ChannelMembershipWriter membershipWriter = mock(ChannelMembershipWriter.class);
+    private final EntityManager entityManager = mock(EntityManager.class);
+
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+
+    private ChatService chatService;
+
+    @BeforeEach
+    void setUp() {
+        chatService = new ChatService(chatRepository, mock(UserRepository.class), messagingTemplate,
+                sequenceGenerator, channelRepository, writeBehindQueue, senderProfileResolver, recentMessageCache,
+                membershipCache, fanoutSender, channelResolver, mock(ChannelActivityTracker.class),
+                mock(ChannelSearchIndex.class), mock(MessageSearchIndex.class), membershipWriter,
+                historyPurger);
+        ReflectionTestUtils.setField(chatService, "deltaFanout", true);
+        ReflectionTestUtils.setField(chatService, "entityManager", entityManager);
+
+        when(senderProfileResolver.resolve(any())).thenReturn(Map.of());
+        when(sequenceGenerator.generateMessageId(CHANNEL_ID)).thenReturn(5L);
+        when(sequenceGenerator.generateCompositeMessageId()).thenReturn(1001L);
+        when(channelResolver.findById(CHANNEL_ID))
+                .thenReturn(new ChannelResolver.ResolvedChannel(CHANNEL_ID, "dm_a_b", ChannelType.DIRECT));
+        when(membershipCache.members(CHANNEL_ID)).thenReturn(new UUID[] { alice, bob });
+    }
+
+    @Test
+    void pushesOnlyTheNewMessageToEveryMember() {
+        chatService.addMessage(request("hello"), CHANNEL_ID);
+
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(fanoutSender).sendToEach(eq("/queue/chat-user-"), eq(List.of(alice, bob)), payload.capture());
+        MessageResponse pushed = (MessageResponse) payload.getValue();
+        assertThat(pushed.getMessageId()).isEqualTo(1001L);
+        assertThat(pushed.getChannelId()).isEqualTo(CHANNEL_ID);
+        assertThat(pushed.getSequenceNumber()).isEqualTo(5L);
+        assertThat(pushed.getContent()).isEqualTo("hello");
+        // The latest window is not read back for the push
+        verify(chatRepository, never()).findByChannelIdOrderBySequenceNumberDesc(anyLong(), any());
+        verify(recentMessageCache).append(pushed);
+    }
+
+    @Test
+    void rebroadcastsTheLatestWindowWithoutDeltaFanout() {
+        ReflectionTestUtils.setField(chatService, "deltaFanout", false);
+        List<MessageResponse> window = List.of(new MessageResponse());
+        when(recentMessageCache.latest(CHANNEL_ID, 15)).thenReturn(window);
+
+        chatService.addMessage(request("hello"), CHANNEL_ID);
+
+        verify(fanoutSender).sendToEach("/queue/chat-user-", List.of(alice, bob), window);
+    }
+
+    @Test
+    void leavesThePushToTheFlushInWriteBehindMode() {
+        when(writeBehindQueue.isEnabled()).thenReturn(true);
+
+        chatService.addMessage(request("hello"), CHANNEL_ID);
+
+        verify(writeBehindQueue).enqueue(any());
+        verifyNoInteractions(fanoutSender);
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+    }
+
+    @Test
+    void streamsTheHistoryInKeysetPages() {
+        stubHistory(1200);
+        List<Integer> pageSizes = new ArrayList<>();
+        List<Long> sequences = new ArrayList<>();
+
+        chatService.streamChannelMessages(CHANNEL_ID, 1, null, page -> {
+            pageSizes.add(page.size());
+            page.forEach(message -> sequences.add(message.getSequenceNumber()));
+        });
+
+        assertThat(pageSizes).containsExactly(500, 500, 200);
+        assertThat(sequences).hasSize(1200).isSorted().startsWith(1L).endsWith(1200L);
+        // Each page seeks from the last sequence of the previous one
+        verify(chatRepository).findByChannelIdAndSequenceNumberGreaterThanOrderBySequenceNumberAsc(
+                eq(CHANNEL_ID), eq(500L), any());
+        verify(chatRepository).findByChannelIdAndSequenceNumberGreaterThanOrderBySequenceNumberAsc(
+                eq(CHANNEL_ID), eq(1000L), any());
+        verify(entityManager, times(3)).clear();
+    }
+
+    @Test
+    void stopsStreamingAtTheLimitAndResumesFromASequence() {
+        stubHistory(1200);
+        List<Long> sequences = new ArrayList<>();
+
+        chatService.streamChannelMessages(CHANNEL_ID, 301, 600,
+                page -> page.forEach(message -> sequences.add(message.getSequenceNumber())));
+
+        assertThat(sequences).hasSize(600).startsWith(301L).endsWith(900L);
+    }
+
+    @Test
+    void mapsConversationRowsWithTheCappedUnreadCount() {
+        ConversationRow capped = conversation(CHANNEL_ID, bob, (long) ChannelRepository.UNREAD_COUNT_CAP);
+        ConversationRow unread = conversation(8L, alice, null);
+        Instant before = Instant.parse("2026-01-01T00:00:00Z");
+        when(channelRepository.findConversations(alice.toString(), before, 9L, 200))
+                .thenReturn(List.of(capped, unread));
+
+        // Page sizes are clamped to the maximum
+        List<ConversationResponse> page = chatService.getUserConversations(alice, before, 9L, 10_000);
+
+        assertThat(page).extracting(ConversationResponse::getChannelId).containsExactly(CHANNEL_ID, 8L);
+        assertThat(page.get(0).getId()).isEqualTo(bob);
+        assertThat(page.get(0).getUnreadCount()).isEqualTo(ChannelRepository.UNREAD_COUNT_CAP);
+        assertThat(page.get(1).getUnreadCount()).isZero();
+    }
+
+    @Test
+    void startsTheFirstConversationPageAtTheNewestChannel() {
+        chatService.getUserConversations(alice, null, null, null);
+
+        verify(channelRepository).findConversations(alice.toString(), null, Long.MAX_VALUE, 50);
+    }
+
+    private static ConversationRow conversation(long channelId, UUID counterpart, Long unreadCount) {
+        ConversationRow row = mock(ConversationRow.class);
+        when(row.getChannelId()).thenReturn(channelId);
+        when(row.getUserId()).thenReturn(counterpart.toString());
+        when(row.getUnreadCount()).thenReturn(unreadCount);
+        return row;
+    }
+
+    @Test
+    void addsMembersWithTheChannelsOwnType() {
+        // Not what the endpoint is for, but any type must reach the rows as is
+        Channel channel = Channel.builder().id(CHANNEL_ID).name("dm").type(ChannelType.DIRECT).build();
+        when(channelRepository.findById(CHANNEL_ID)).thenReturn(Optional.of(channel));
+        when(membershipWriter.addMembers(eq(CHANNEL_ID), any(), any(), any()))
+                .thenReturn(new ChannelMembershipWriter.Result(List.of(bob), 1, 0));
+
+        AddMembersResponse response = chatService.addMembersToChannel(CHANNEL_ID,
+                List.of(alice.toString(), bob.toString()));
+
+        verify(membershipWriter).addMembers(eq(CHANNEL_ID), eq(ChannelType.DIRECT),
+                eq(List.of(alice.toString(), bob.toString())), any());
+        verify(membershipCache).invalidate(CHANNEL_ID, List.of(bob));
+        assertThat(response.getAdded()).isEqualTo(1);
+        assertThat(response.getSkipped()).isEqualTo(1);
+    }
+
+    @Test
+    void releasesTheDeletedChannelOnlyOnceCommitted() {
+        User creator = User.builder().id(alice).build();
+        Channel channel = Channel.builder().id(CHANNEL_ID).name("team").type(ChannelType.GROUP)
+                .creatorId(creator).build();
+        when(channelRepository.findById(CHANNEL_ID)).thenReturn(Optional.of(channel));
+        when(channelRepository.findMemberIdsByChannelId(CHANNEL_ID)).thenReturn(List.of(alice, bob));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            chatService.deleteChannel(CHANNEL_ID, alice);
+
+            verify(historyPurger).markPending(CHANNEL_ID);
+            verify(channelRepository).deleteMembersByChannelId(CHANNEL_ID);
+            verify(sequenceGenerator, never()).releaseChannel(anyLong());
+            verify(recentMessageCache, never()).evict(anyLong());
+            verifyNoInteractions(membershipCache);
+            verify(historyPurger, never()).purge(anyLong());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(sequenceGenerator).releaseChannel(CHANNEL_ID);
+        verify(recentMessageCache).evict(CHANNEL_ID);
+        verify(membershipCache).invalidateCommitted(CHANNEL_ID, List.of());
+        verify(historyPurger).purge(CHANNEL_ID);
+    }
+
+    // Plays a channel with the given number of messages, sequences 1..count
+    private void stubHistory(int count) {
+        when(chatRepository.findByChannelIdAndSequenceNumberGreaterThanOrderBySequenceNumberAsc(
+                eq(CHANNEL_ID), anyLong(), any())).thenAnswer(invocation -> {
+                    long after = invocation.getArgument(1, Long.class);
+                    int size = invocation.getArgument(2, Pageable.class).getPageSize();
+                    List<Message> page = new ArrayList<>();
+                    for (long sequence = after + 1; sequence <= count && page.size() < size; sequence++) {
+                        page.add(Message.builder()
+                                .messageId(sequence)
+                                .channelId(CHANNEL_ID)
+                                .sequenceNumber(sequence)
+                                .content("m" + sequence)
+                                .build());
+                    }
+                    return page;
+                });
+    }
+
+    private static SendingMessageRequest request(String content) {
+        return SendingMessageRequest.builder()
+                .sender(SendingMessageRequest.Sender.builder().userId("sender").content(content).build())
+                .receiver(SendingMessageRequest.Receiver.builder().channelId(CHANNEL_ID).build())
+                .build();
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.security.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Base64;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.security.dto.UserPrincipal;
+import com.example.security.dto.ValidatedToken;
+import com.example.security.model.User;
+import com.example.security.model.Authority.Role;
+
+class JwtServiceTest {
+
+    private final JwtService jwtService = new JwtService();
+
+    private final User user = User.builder()
+            .id(UUID.randomUUID())
+            .username("alice")
+            .name("Alice")
+            .picture("https://example.com/alice.png")
+            .provider("google")
+            .role(Role.ADMIN)
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(jwtService, "secretKey",
+                Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes()));
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 60_000L);
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", 120_000L);
+        jwtService.init();
+    }
+
+    @Test
+    void validatesSignatureAndExpiryInOneParse() {
+        String token = jwtService.generateToken(user);
+
+        ValidatedToken validated = jwtService.tryValidate(token).orElseThrow();
+
+        assertThat(validated.token()).isEqualTo(token);
+        assertThat(validated.subject()).isEqualTo("alice");
+        assertThat(validated.expiresAt()).isAfter(validated.issuedAt());
+        assertThat(validated.isExpired()).isFalse();
+        assertThat(jwtService.isTokenValid(validated, user)).isTrue();
+        assertThat(jwtService.isTokenValid(token, user)).isTrue();
+    }
+
+    @Test
+    void rejectsExpiredTokens() {
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", -1_000L);
+        String token = jwtService.generateToken(user);
+
+        assertThat(jwtService.tryValidate(token)).isEmpty();
+        assertThat(jwtService.isTokenValid(token, user)).isFalse();
+    }
+
+    @Test
+    void rejectsTamperedAndMissingTokens() {
+        String token = jwtService.generateToken(user);
+        // The first signature character carries no padding bits
+        int signature = token.lastIndexOf('.') + 1;
+        char first = token.charAt(signature);
+        String tampered = token.substring(0, signature) + (first == 'A' ? 'B' : 'A') + token.substring(signature + 1);
+
+        assertThat(jwtService.tryValidate(tampered)).isEmpty();
+        assertThat(jwtService.tryValidate("not-a-jwt")).isEmpty();
+        assertThat(jwtService.tryValidate(null)).isEmpty();
+    }
+
+    @Test
+    void rebuildsThePrincipalFromOneParse() {
+        String token = jwtService.generateToken(user);
+
+        ValidatedToken validated = jwtService.tryValidate(token).orElseThrow();
+        UserPrincipal principal = UserPrincipal.create(validated);
+
+        assertThat(validated.subject()).isEqualTo("alice");
+        assertThat(validated.isExpired()).isFalse();
+        assertThat(principal.getId()).isEqualTo(user.getId());
+        assertThat(principal.getUsername()).isEqualTo("alice");
+        assertThat(principal.getPicture()).isEqualTo(user.getPicture());
+        assertThat(principal.getProvider()).isEqualTo("google");
+        assertThat(principal.getAuthorities()).extracting(Object::toString).containsExactly("ROLE_ADMIN");
+        assertThat(jwtService.isTokenValid(token, user)).isTrue();
+    }
+
+    @Test
+    void refreshTokensCarryNoPrincipalClaims() {
+        String token = jwtService.generateRefreshToken(user);
+
+        ValidatedToken validated = jwtService.tryValidate(token).orElseThrow();
+
+        assertThat(UserPrincipal.create(validated)).isNull();
+    }
+}
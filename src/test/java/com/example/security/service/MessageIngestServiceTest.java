@@ -0,0 +1,113 @@
+package com.example.security.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import com.example.security.dto.MessageReceipt;
+import com.example.security.dto.SendingMessageRequest;
+import com.example.security.model.Chatting.Message;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MessageIngestServiceTest {
+
+    private static final long CHANNEL_ID = 7L;
+
+    private final ChatService chatService = mock(ChatService.class);
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+    private final ChannelMailboxExecutor mailboxes = new ChannelMailboxExecutor(new SimpleMeterRegistry(), 100);
+    private final MessageIngestService ingestService = new MessageIngestService(chatService, mailboxes,
+            messagingTemplate);
+
+    private final UUID senderId = UUID.randomUUID();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mailboxes.stop();
+    }
+
+    @Test
+    void sendsFromTheSessionUserAndAcknowledgesWithTheSequence() {
+        SendingMessageRequest request = request("someone-else");
+        when(chatService.resolveChannelId(request)).thenReturn(CHANNEL_ID);
+        when(chatService.addMessage(request, CHANNEL_ID)).thenReturn(Message.builder()
+                .messageId(1001L)
+                .channelId(CHANNEL_ID)
+                .sequenceNumber(5L)
+                .build());
+
+        ingestService.ingest(request, senderId);
+
+        MessageReceipt receipt = receipt();
+        assertThat(request.getSender().getUserId()).isEqualTo(senderId.toString());
+        assertThat(receipt.getStatus()).isEqualTo(MessageReceipt.Status.ACCEPTED);
+        assertThat(receipt.getClientMessageId()).isEqualTo("client-1");
+        assertThat(receipt.getSequenceNumber()).isEqualTo(5L);
+    }
+
+    @Test
+    void rejectsAnUnknownChannelWithAReceipt() {
+        SendingMessageRequest request = request(null);
+        when(chatService.resolveChannelId(request))
+                .thenThrow(new RuntimeException("This group chat or receiver is not found!"));
+
+        ingestService.ingest(request, senderId);
+
+        MessageReceipt receipt = receipt();
+        assertThat(receipt.getStatus()).isEqualTo(MessageReceipt.Status.REJECTED);
+        assertThat(receipt.getError()).isEqualTo("This group chat or receiver is not found!");
+    }
+
+    @Test
+    void rejectsAFailedStoreWithAReceipt() {
+        SendingMessageRequest request = request(null);
+        when(chatService.resolveChannelId(request)).thenReturn(CHANNEL_ID);
+        when(chatService.addMessage(any(), anyLong())).thenThrow(new RuntimeException("store failed"));
+
+        ingestService.ingest(request, senderId);
+
+        MessageReceipt receipt = receipt();
+        assertThat(receipt.getStatus()).isEqualTo(MessageReceipt.Status.REJECTED);
+        assertThat(receipt.getError()).isEqualTo("store failed");
+    }
+
+    @Test
+    void sendAndWaitRethrowsTheOriginalException() {
+        SendingMessageRequest request = request(senderId.toString());
+        when(chatService.resolveChannelId(request)).thenReturn(CHANNEL_ID);
+        when(chatService.addMessage(any(), anyLong())).thenThrow(new IllegalStateException("store failed"));
+
+        assertThatThrownBy(() -> ingestService.sendAndWait(request))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("store failed");
+    }
+
+    private MessageReceipt receipt() {
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate, timeout(5000))
+                .convertAndSend(eq(MessageIngestService.RECEIPT_QUEUE_PREFIX + senderId), payload.capture());
+        return (MessageReceipt) payload.getValue();
+    }
+
+    private static SendingMessageRequest request(String claimedSender) {
+        return SendingMessageRequest.builder()
+                .clientMessageId("client-1")
+                .sender(SendingMessageRequest.Sender.builder().userId(claimedSender).content("hello").build())
+                .receiver(SendingMessageRequest.Receiver.builder().channelId(CHANNEL_ID).build())
+                .build();
+    }
+}
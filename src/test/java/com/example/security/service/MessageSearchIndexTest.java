@@ -0,0 +1,158 @@
+package com.example.security.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import com.example.security.model.Chatting.Message;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MessageSearchIndexTest {
+
+    private final StubJdbcTemplate jdbcTemplate = new StubJdbcTemplate();
+    private MessageSearchIndex index;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (index != null) {
+            index.stop();
+        }
+    }
+
+    @Test
+    void booleanQueryRequiresEveryWordAsAPrefix() {
+        assertThat(MessageSearchIndex.booleanQuery("Hello  Wörld!")).isEqualTo("+hello* +wörld*");
+        // Operators are stripped, short words skipped
+        assertThat(MessageSearchIndex.booleanQuery("-foo +bar* \"baz\" to be")).isEqualTo("+foo* +bar* +baz*");
+        assertThat(MessageSearchIndex.booleanQuery("one two three four five six seven eight nine ten"))
+                .isEqualTo("+one* +two* +three* +four* +five* +six* +seven* +eight*");
+        assertThat(MessageSearchIndex.booleanQuery("a b")).isEmpty();
+        assertThat(MessageSearchIndex.booleanQuery(null)).isEmpty();
+    }
+
+    @Test
+    void unsearchableQueriesSkipTheDatabase() {
+        index = newIndex(10);
+
+        assertThat(index.search(7L, "hi", MessageSearchIndex.Order.RECENT, null, 0, 20)).isEmpty();
+        assertThat(jdbcTemplate.queries).isEmpty();
+    }
+
+    @Test
+    void catchesUpFromTheStoredMarkOnStartup() throws Exception {
+        jdbcTemplate.mark = 3L;
+        for (long id = 1; id <= 5; id++) {
+            jdbcTemplate.messages.add(message(id));
+        }
+        index = newIndex(10);
+
+        index.start();
+
+        await(() -> jdbcTemplate.indexed.size() == 2);
+        assertThat(jdbcTemplate.indexed).containsExactly(4L, 5L);
+        assertThat(jdbcTemplate.catchUpCursors.get(0)).isEqualTo(3L);
+    }
+
+    @Test
+    void catchesUpOnMessagesSkippedByAFullBuffer() throws Exception {
+        jdbcTemplate.mark = 100L;
+        for (long id = 101; id <= 103; id++) {
+            jdbcTemplate.messages.add(message(id));
+        }
+        index = newIndex(1);
+        // Only the first fits, the other two are left to the scan
+        index.enqueue(List.of(message(101), message(102), message(103)));
+
+        index.start();
+
+        await(() -> jdbcTemplate.indexed.size() == 3);
+        assertThat(jdbcTemplate.indexed).containsExactlyInAnyOrder(101L, 102L, 103L);
+    }
+
+    private MessageSearchIndex newIndex(int capacity) {
+        return new MessageSearchIndex(jdbcTemplate, new SimpleMeterRegistry(), capacity, 500, 10);
+    }
+
+    private static Message message(long id) {
+        return Message.builder()
+                .messageId(id)
+                .channelId(7L)
+                .sequenceNumber(id)
+                .content("message " + id)
+                .build();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    /**
+     * Plays the messages table and records what gets indexed. A message
+     * counts as indexed once it was inserted into message_search.
+     */
+    private static class StubJdbcTemplate extends JdbcTemplate {
+
+        final List<Message> messages = new CopyOnWriteArrayList<>();
+        final List<Long> indexed = new CopyOnWriteArrayList<>();
+        final List<Long> catchUpCursors = new CopyOnWriteArrayList<>();
+        final List<String> queries = new CopyOnWriteArrayList<>();
+        volatile Long mark;
+
+        @Override
+        public <T> T queryForObject(String sql, Class<T> requiredType) {
+            // The FULLTEXT index exists
+            return requiredType.cast(1);
+        }
+
+        @Override
+        public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+            return mark == null ? List.of() : List.of(elementType.cast(mark));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+            queries.add(sql);
+            if (!sql.contains("LEFT JOIN message_search")) {
+                return List.of();
+            }
+            long cursor = (Long) args[0];
+            int limit = (Integer) args[1];
+            catchUpCursors.add(cursor);
+            List<T> page = new ArrayList<>();
+            for (Message message : messages) {
+                if (message.getMessageId() > cursor && !indexed.contains(message.getMessageId())
+                        && page.size() < limit) {
+                    page.add((T) message);
+                }
+            }
+            return page;
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            if (sql.startsWith("INSERT IGNORE INTO message_search")) {
+                for (int i = 0; i < args.length; i += 4) {
+                    Long id = (Long) args[i];
+                    if (!indexed.contains(id)) {
+                        indexed.add(id);
+                    }
+                }
+            }
+            return 1;
+        }
+    }
+}
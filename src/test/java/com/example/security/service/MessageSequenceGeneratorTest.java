@@ -0,0 +1,78 @@
+package com.example.security.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+class MessageSequenceGeneratorTest {
+
+    @Test
+    void idsAreUniqueAcrossConcurrentCallers() throws Exception {
+        MessageSequenceGenerator generator = new MessageSequenceGenerator(mock(ChannelSequenceAllocator.class), 5);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        int threads = 8;
+        int perThread = 20_000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        ids.add(generator.generateCompositeMessageId());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(ids).hasSize(threads * perThread);
+    }
+
+    @Test
+    void idsIncreaseAndCarryNodeAndTime() {
+        MessageSequenceGenerator generator = new MessageSequenceGenerator(mock(ChannelSequenceAllocator.class), 5);
+        long before = System.currentTimeMillis();
+
+        long first = generator.generateCompositeMessageId();
+        long second = generator.generateCompositeMessageId();
+
+        assertThat(second).isGreaterThan(first);
+        assertThat((first >> 12) & MessageSequenceGenerator.MAX_NODE_ID).isEqualTo(5);
+        assertThat(first >> 22).isGreaterThanOrEqualTo(before);
+    }
+
+    @Test
+    void differentNodesNeverCollide() {
+        MessageSequenceGenerator a = new MessageSequenceGenerator(mock(ChannelSequenceAllocator.class), 1);
+        MessageSequenceGenerator b = new MessageSequenceGenerator(mock(ChannelSequenceAllocator.class), 2);
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(a.generateCompositeMessageId());
+            ids.add(b.generateCompositeMessageId());
+        }
+
+        assertThat(ids).hasSize(20_000);
+    }
+
+    @Test
+    void rejectsNodeOutOfRange() {
+        assertThatThrownBy(() -> new MessageSequenceGenerator(mock(ChannelSequenceAllocator.class), 1024))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.security.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.security.event.MessagesFlushedEvent;
+import com.example.security.model.Chatting.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MessageWriteBehindQueueTest {
+
+    private static final int COLUMNS = 7;
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final RecordingJdbcTemplate jdbcTemplate = new RecordingJdbcTemplate();
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private MessageWriteBehindQueue queue;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (queue != null) {
+            queue.stop();
+        }
+    }
+
+    @Test
+    void replaysLoggedMessagesOnStartupAndClearsTheLog() throws Exception {
+        Path logPath = dir.resolve("append.log");
+        MessageAppendLog previousRun = new MessageAppendLog(logPath, objectMapper, false);
+        previousRun.open();
+        previousRun.append(message(1));
+        previousRun.append(message(2));
+        previousRun.close();
+        // The first one was committed before the crash
+        jdbcTemplate.alreadyStored = 1;
+
+        queue = newQueue(logPath);
+        queue.start();
+
+        assertThat(jdbcTemplate.statements).hasSize(1);
+        assertThat(jdbcTemplate.statements.get(0)).startsWith("INSERT IGNORE INTO messages");
+        assertThat(jdbcTemplate.rows).containsExactly(1L, 2L);
+        assertThat(readLog(logPath)).isEmpty();
+    }
+
+    @Test
+    void flushesBufferedMessagesAndClearsTheLog() throws Exception {
+        Path logPath = dir.resolve("append.log");
+        queue = newQueue(logPath);
+        queue.start();
+
+        queue.enqueue(message(1));
+        queue.enqueue(message(2));
+
+        awaitRows(2);
+        assertThat(jdbcTemplate.rows).containsExactly(1L, 2L);
+        queue.stop();
+        assertThat(readLog(logPath)).isEmpty();
+        queue = null;
+    }
+
+    @Test
+    void keepsFlushingWhenTheIgnoreFallbackFails() throws Exception {
+        queue = newQueue(dir.resolve("append.log"));
+        jdbcTemplate.failures.add(new DataIntegrityViolationException("duplicate"));
+        jdbcTemplate.failures.add(new RuntimeException("connection reset"));
+        queue.start();
+
+        queue.enqueue(message(1));
+
+        verify(eventPublisher, timeout(2000)).publishEvent(any(MessagesFlushedEvent.class));
+        assertThat(jdbcTemplate.statements).last().asString().startsWith("INSERT IGNORE INTO messages");
+        assertThat(jdbcTemplate.rows).containsExactly(1L);
+        assertThat(meterRegistry.get("chat.writebehind.ignored").counter().count()).isZero();
+
+        // The flusher survived and still takes new messages
+        queue.enqueue(message(2));
+        verify(eventPublisher, timeout(2000).times(2)).publishEvent(any(MessagesFlushedEvent.class));
+    }
+
+    @Test
+    void countsMessagesDroppedAsDuplicates() throws Exception {
+        queue = newQueue(dir.resolve("append.log"));
+        jdbcTemplate.failures.add(new DataIntegrityViolationException("duplicate"));
+        jdbcTemplate.alreadyStored = 1;
+        queue.start();
+
+        queue.enqueue(message(1));
+
+        verify(eventPublisher, timeout(2000)).publishEvent(any(MessagesFlushedEvent.class));
+        assertThat(meterRegistry.get("chat.writebehind.ignored").counter().count()).isEqualTo(1.0);
+    }
+
+    private MessageWriteBehindQueue newQueue(Path logPath) {
+        return new MessageWriteBehindQueue(jdbcTemplate, eventPublisher, objectMapper, meterRegistry,
+                true, 100, 10, 10, 200, logPath.toString(), false);
+    }
+
+    private void awaitRows(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (jdbcTemplate.rows.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private List<Message> readLog(Path logPath) throws Exception {
+        return new MessageAppendLog(logPath, objectMapper, false).readAll();
+    }
+
+    private static Message message(long id) {
+        return Message.builder()
+                .messageId(id)
+                .channelId(1L)
+                .sequenceNumber(id)
+                .content("message " + id)
+                .sender("sender")
+                .createdAt(Instant.parse("2024-01-01T00:00:00Z"))
+                .build();
+    }
+
+    /**
+     * Records multi-row inserts. Fails with the queued exceptions first, and
+     * reports {@code alreadyStored} rows as ignored on the next IGNORE insert.
+     */
+    private static class RecordingJdbcTemplate extends JdbcTemplate {
+
+        final List<String> statements = new CopyOnWriteArrayList<>();
+        final List<Long> rows = new CopyOnWriteArrayList<>();
+        final List<RuntimeException> failures = new CopyOnWriteArrayList<>();
+        volatile int alreadyStored;
+
+        @Override
+        public int update(String sql, Object... args) {
+            statements.add(sql);
+            if (!failures.isEmpty()) {
+                throw failures.remove(0);
+            }
+            for (int i = 0; i < args.length; i += COLUMNS) {
+                rows.add((Long) args[i]);
+            }
+            int inserted = args.length / COLUMNS;
+            if (sql.startsWith("INSERT IGNORE")) {
+                inserted -= alreadyStored;
+                alreadyStored = 0;
+            }
+            return inserted;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.security.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.example.security.dto.MessageResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RecentMessageCacheTest {
+
+    private static final long CHANNEL = 1L;
+
+    @Test
+    void unknownChannelIsAMiss() {
+        RecentMessageCache cache = newCache(50, 64);
+
+        assertThat(cache.latest(CHANNEL, 15)).isNull();
+        assertThat(cache.after(CHANNEL, 0, 10)).isNull();
+    }
+
+    @Test
+    void firstAppendOnlyVouchesForNewerMessages() {
+        RecentMessageCache cache = newCache(50, 64);
+        appendRange(cache, CHANNEL, 10, 14);
+
+        assertThat(sequences(cache.after(CHANNEL, 9, 10))).containsExactly(10L, 11L, 12L, 13L, 14L);
+        assertThat(sequences(cache.after(CHANNEL, 12, 1))).containsExactly(13L);
+        assertThat(sequences(cache.after(CHANNEL, 14, 10))).isEmpty();
+        // Message 9 may exist and was never seen
+        assertThat(cache.after(CHANNEL, 8, 10)).isNull();
+
+        assertThat(sequences(cache.latest(CHANNEL, 3))).containsExactly(12L, 13L, 14L);
+        assertThat(cache.latest(CHANNEL, 10)).isNull();
+    }
+
+    @Test
+    void completeSeedAnswersShortChannels() {
+        RecentMessageCache cache = newCache(50, 64);
+        cache.seed(CHANNEL, List.of(message(CHANNEL, 1), message(CHANNEL, 2)), true);
+
+        assertThat(sequences(cache.latest(CHANNEL, 15))).containsExactly(1L, 2L);
+        assertThat(sequences(cache.after(CHANNEL, 0, 10))).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void trimmingRaisesTheFloor() {
+        RecentMessageCache cache = newCache(3, 64);
+        appendRange(cache, CHANNEL, 1, 5);
+
+        assertThat(sequences(cache.latest(CHANNEL, 3))).containsExactly(3L, 4L, 5L);
+        assertThat(sequences(cache.after(CHANNEL, 2, 10))).containsExactly(3L, 4L, 5L);
+        assertThat(cache.after(CHANNEL, 1, 10)).isNull();
+    }
+
+    @Test
+    void seedMergesOnlyWhenContiguousWithTheRing() {
+        RecentMessageCache cache = newCache(50, 64);
+        appendRange(cache, CHANNEL, 20, 22);
+
+        // Ends below the floor: 16..19 could be missing
+        cache.seed(CHANNEL, range(CHANNEL, 10, 15), false);
+        assertThat(cache.after(CHANNEL, 9, 50)).isNull();
+
+        cache.seed(CHANNEL, range(CHANNEL, 15, 20), false);
+        assertThat(sequences(cache.after(CHANNEL, 14, 50)))
+                .containsExactly(15L, 16L, 17L, 18L, 19L, 20L, 21L, 22L);
+        assertThat(cache.after(CHANNEL, 13, 50)).isNull();
+    }
+
+    @Test
+    void keepsInterleavedBlocksFromTwoNodesInSequenceOrder() {
+        RecentMessageCache cache = newCache(50, 64);
+        // Node A leased 1..5 and node B 6..10; their sends commit alternately
+        long[] arrivals = { 6, 1, 7, 2, 8, 3, 9, 4, 10, 5 };
+        for (int i = 0; i < 4; i++) {
+            cache.append(message(CHANNEL, arrivals[i]));
+        }
+
+        // 3..5 are still missing, only 6 and 7 are vouched for
+        assertThat(sequences(cache.after(CHANNEL, 5, 10))).containsExactly(6L, 7L);
+        assertThat(sequences(cache.latest(CHANNEL, 2))).containsExactly(6L, 7L);
+        assertThat(cache.latest(CHANNEL, 4)).isNull();
+        assertThat(cache.after(CHANNEL, 0, 10)).isNull();
+
+        for (int i = 4; i < arrivals.length; i++) {
+            cache.append(message(CHANNEL, arrivals[i]));
+        }
+
+        assertThat(sequences(cache.after(CHANNEL, 0, 20)))
+                .containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L);
+        assertThat(sequences(cache.latest(CHANNEL, 10)))
+                .containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L);
+    }
+
+    @Test
+    void rejectsAppendsBelowTheTrimmedTail() {
+        RecentMessageCache cache = newCache(3, 64);
+        appendRange(cache, CHANNEL, 5, 8);
+        cache.append(message(CHANNEL, 4));
+
+        assertThat(sequences(cache.latest(CHANNEL, 3))).containsExactly(6L, 7L, 8L);
+        assertThat(cache.after(CHANNEL, 3, 10)).isNull();
+    }
+
+    @Test
+    void duplicateAppendsAreIgnored() {
+        RecentMessageCache cache = newCache(50, 64);
+        appendRange(cache, CHANNEL, 1, 3);
+        cache.append(message(CHANNEL, 2));
+
+        assertThat(sequences(cache.after(CHANNEL, 0, 10))).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedChannelsOverTheByteBudget() {
+        // About 200 KB per message against a 1 MB budget
+        RecentMessageCache cache = newCache(50, 1);
+        String content = "x".repeat(100_000);
+        for (long channel = 1; channel <= 5; channel++) {
+            cache.append(message(channel, 1, content));
+        }
+        // Channel 1 becomes the most recently used
+        assertThat(cache.latest(1, 1)).isNotNull();
+
+        cache.append(message(6, 1, content));
+
+        assertThat(cache.latest(1, 1)).isNotNull();
+        assertThat(cache.latest(2, 1)).isNull();
+        assertThat(cache.latest(6, 1)).isNotNull();
+    }
+
+    @Test
+    void evictDropsTheChannel() {
+        RecentMessageCache cache = newCache(50, 64);
+        appendRange(cache, CHANNEL, 1, 3);
+
+        cache.evict(CHANNEL);
+
+        assertThat(cache.latest(CHANNEL, 1)).isNull();
+    }
+
+    private static RecentMessageCache newCache(int capacity, long maxMemoryMb) {
+        return new RecentMessageCache(mock(StringRedisTemplate.class), new ObjectMapper(),
+                new SimpleMeterRegistry(), capacity, maxMemoryMb, false, 60);
+    }
+
+    private static void appendRange(RecentMessageCache cache, long channelId, long from, long to) {
+        range(channelId, from, to).forEach(cache::append);
+    }
+
+    private static List<MessageResponse> range(long channelId, long from, long to) {
+        return LongStream.rangeClosed(from, to).mapToObj(sequence -> message(channelId, sequence)).toList();
+    }
+
+    private static MessageResponse message(long channelId, long sequence) {
+        return message(channelId, sequence, "message " + sequence);
+    }
+
+    private static MessageResponse message(long channelId, long sequence, String content) {
+        return new MessageResponse(channelId * 1000 + sequence, content, "sender", "Sender", null, sequence,
+                "2024-01-01T00:00:00Z", channelId);
+    }
+
+    private static List<Long> sequences(List<MessageResponse> messages) {
+        assertThat(messages).isNotNull();
+        return messages.stream().map(MessageResponse::getSequenceNumber).toList();
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.security.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.security.dto.ChannelSearchResponse;
+import com.example.security.dto.SearchResponse;
+import com.example.security.repository.ChatRepo.ChannelRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class SearchServiceTest {
+
+    private final UserService userService = mock(UserService.class);
+    private final ChannelSearchIndex channelSearchIndex = mock(ChannelSearchIndex.class);
+    private final ChannelMembershipCache membershipCache = mock(ChannelMembershipCache.class);
+    private final SearchService searchService = new SearchService(userService, channelSearchIndex,
+            mock(ChannelRepository.class), membershipCache, new SimpleMeterRegistry(), 100, 30);
+
+    private final UUID alice = UUID.randomUUID();
+    private final List<ChannelSearchResponse> channels = List.of(
+            new ChannelSearchResponse(1L, "team"), new ChannelSearchResponse(2L, "teachers"));
+
+    @AfterEach
+    void tearDown() {
+        searchService.stop();
+    }
+
+    @Test
+    void filtersChannelsByTheCurrentMembershipOnEverySearch() {
+        when(userService.searchUsers("te", 10)).thenReturn(List.of());
+        when(channelSearchIndex.search(eq("te"), eq(10), any())).thenAnswer(invocation -> {
+            Predicate<ChannelSearchResponse> filter = invocation.getArgument(2);
+            return channels.stream().filter(filter).toList();
+        });
+        // Alice joins channel 2 between the searches
+        when(membershipCache.groupChannels(alice)).thenReturn(Set.of(1L), Set.of(1L, 2L));
+
+        assertThat(searchService.search(alice, "te", null).getChannels())
+                .extracting(ChannelSearchResponse::getId).containsExactly(1L);
+        SearchResponse second = searchService.search(alice, " TE ", null);
+        assertThat(second.getChannels()).extracting(ChannelSearchResponse::getId).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void skipsTheChannelLookupWithoutMemberships() {
+        when(userService.searchUsers("te", 10)).thenReturn(List.of());
+        when(membershipCache.groupChannels(alice)).thenReturn(Set.of());
+
+        assertThat(searchService.search(alice, "te", null).getChannels()).isEmpty();
+        verifyNoInteractions(channelSearchIndex);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.security.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.util.MimeTypeUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class StompFanoutSenderTest {
+
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+    private final ObjectMapper objectMapper = spy(new ObjectMapper());
+    private final StompFanoutSender sender = new StompFanoutSender(messagingTemplate, objectMapper);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void serializesOnceAndSendsTheSameBytesToEveryMember() throws Exception {
+        sender.sendToEach("/queue/updates-user-", List.of("a", "b", "c"), Map.of("type", "CHANNEL_REMOVED"));
+
+        ArgumentCaptor<String> destinations = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Message<?>> messages = ArgumentCaptor.forClass(Message.class);
+        verify(messagingTemplate, times(3)).send(destinations.capture(), messages.capture());
+        verify(objectMapper, times(1)).writeValueAsBytes(any());
+
+        assertThat(destinations.getAllValues())
+                .containsExactly("/queue/updates-user-a", "/queue/updates-user-b", "/queue/updates-user-c");
+        Message<byte[]> first = (Message<byte[]>) messages.getAllValues().get(0);
+        assertThat(messages.getAllValues()).allSatisfy(message -> assertThat(message.getPayload())
+                .isSameAs(first.getPayload()));
+        assertThat(first.getHeaders().get(MessageHeaders.CONTENT_TYPE)).isEqualTo(MimeTypeUtils.APPLICATION_JSON);
+        assertThat(objectMapper.readValue(first.getPayload(), Map.class)).containsEntry("type", "CHANNEL_REMOVED");
+    }
+
+    @Test
+    void skipsSerializationWithoutRecipients() throws Exception {
+        sender.send(List.of(), Map.of("type", "CHANNEL_REMOVED"));
+
+        verify(objectMapper, never()).writeValueAsBytes(any());
+        verify(messagingTemplate, never()).send(anyString(), any());
+    }
+}
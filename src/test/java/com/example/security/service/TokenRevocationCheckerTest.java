@@ -0,0 +1,105 @@
+package com.example.security.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import com.example.security.dto.ValidatedToken;
+
+import io.jsonwebtoken.Jwts;
+
+class TokenRevocationCheckerTest {
+
+    private final StubJdbcTemplate jdbcTemplate = new StubJdbcTemplate();
+    private final TokenRevocationChecker checker = new TokenRevocationChecker(jdbcTemplate, 100, 30);
+
+    @Test
+    void acceptsAnActiveTokenOfAnUnchangedAccount() throws SQLException {
+        jdbcTemplate.row(false, "USER");
+
+        assertThat(checker.isRevoked(token("USER"))).isFalse();
+    }
+
+    @Test
+    void rejectsATokenOfADisabledOrLockedAccount() throws SQLException {
+        // The lookup folds revoked, disabled, locked and expired into one flag
+        jdbcTemplate.row(true, "USER");
+
+        assertThat(checker.isRevoked(token("USER"))).isTrue();
+    }
+
+    @Test
+    void rejectsATokenWhoseRoleClaimNoLongerMatches() throws SQLException {
+        jdbcTemplate.row(false, "USER");
+
+        assertThat(checker.isRevoked(token("ADMIN"))).isTrue();
+    }
+
+    @Test
+    void treatsAMissingRoleClaimAsUser() throws SQLException {
+        jdbcTemplate.row(false, "USER");
+
+        assertThat(checker.isRevoked(token(null))).isFalse();
+    }
+
+    @Test
+    void acceptsATokenThatWasNeverStored() {
+        assertThat(checker.isRevoked(token("ADMIN"))).isFalse();
+    }
+
+    @Test
+    void looksUpEachTokenOncePerTtlUntilForgotten() throws SQLException {
+        jdbcTemplate.row(false, "USER");
+        ValidatedToken token = token("USER");
+
+        checker.isRevoked(token);
+        checker.isRevoked(token);
+        assertThat(jdbcTemplate.queries).isEqualTo(1);
+
+        checker.forget(token.token());
+        checker.isRevoked(token);
+        assertThat(jdbcTemplate.queries).isEqualTo(2);
+    }
+
+    private static ValidatedToken token(String role) {
+        Map<String, Object> claims = role != null ? Map.of(ValidatedToken.CLAIM_ROLE, role) : Map.of();
+        return ValidatedToken.of("header.payload.signature", Jwts.claims(claims).setSubject("alice"));
+    }
+
+    private static class StubJdbcTemplate extends JdbcTemplate {
+
+        final List<ResultSet> rows = new ArrayList<>();
+        int queries;
+
+        void row(boolean rejected, String role) throws SQLException {
+            ResultSet row = mock(ResultSet.class);
+            when(row.getBoolean("rejected")).thenReturn(rejected);
+            when(row.getString("role")).thenReturn(role);
+            rows.add(row);
+        }
+
+        @Override
+        public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+            queries++;
+            List<T> mapped = new ArrayList<>();
+            try {
+                for (int i = 0; i < rows.size(); i++) {
+                    mapped.add(rowMapper.mapRow(rows.get(i), i));
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            return mapped;
+        }
+    }
+}
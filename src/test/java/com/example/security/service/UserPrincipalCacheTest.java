@@ -0,0 +1,129 @@
+package com.example.security.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.security.redisSchema.RedisSchema;
+import com.example.security.repository.UserAccountView;
+import com.example.security.repository.UserRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class UserPrincipalCacheTest {
+
+    private static final String ALICE = "alice@example.com";
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    private final RedisMessageListenerContainer listenerContainer = mock(RedisMessageListenerContainer.class);
+    private final UserPrincipalCache cache = new UserPrincipalCache(userRepository, redisTemplate,
+            listenerContainer, new SimpleMeterRegistry(), 100, 3600, true);
+
+    @BeforeEach
+    void setUp() {
+        UserAccountView account = account(ALICE);
+        when(userRepository.findAccountByUsername(ALICE)).thenReturn(Optional.of(account));
+    }
+
+    @Test
+    void loadsOnceUntilInvalidated() {
+        cache.loadUserByUsername(ALICE);
+        assertThat(cache.loadUserByUsername(ALICE).getUsername()).isEqualTo(ALICE);
+        verify(userRepository, times(1)).findAccountByUsername(ALICE);
+
+        cache.invalidate(ALICE);
+        cache.loadUserByUsername(ALICE);
+        verify(userRepository, times(2)).findAccountByUsername(ALICE);
+        verify(redisTemplate).convertAndSend(RedisSchema.getPrincipalInvalidationChannel(), ALICE);
+    }
+
+    @Test
+    void doesNotCacheUnknownUsers() {
+        when(userRepository.findAccountByUsername("nobody")).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> cache.loadUserByUsername("nobody")).isInstanceOf(UsernameNotFoundException.class);
+        assertThatThrownBy(() -> cache.loadUserByUsername("nobody")).isInstanceOf(UsernameNotFoundException.class);
+        verify(userRepository, times(2)).findAccountByUsername("nobody");
+    }
+
+    @Test
+    void dropsALoadRacingTheTransactionAndBroadcastsAfterCommit() {
+        cache.loadUserByUsername(ALICE);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.invalidate(ALICE);
+            // Another request reloads the old row before the change commits
+            cache.loadUserByUsername(ALICE);
+            verify(redisTemplate, never()).convertAndSend(anyString(), anyString());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(redisTemplate).convertAndSend(RedisSchema.getPrincipalInvalidationChannel(), ALICE);
+        cache.loadUserByUsername(ALICE);
+        verify(userRepository, times(3)).findAccountByUsername(ALICE);
+    }
+
+    @Test
+    void evictsOnAnotherNodesInvalidation() {
+        cache.subscribe();
+        ArgumentCaptor<MessageListener> listener = ArgumentCaptor.forClass(MessageListener.class);
+        verify(listenerContainer).addMessageListener(listener.capture(), any(ChannelTopic.class));
+        cache.loadUserByUsername(ALICE);
+
+        Message message = mock(Message.class);
+        when(message.getBody()).thenReturn(ALICE.getBytes());
+        listener.getValue().onMessage(message, null);
+
+        cache.loadUserByUsername(ALICE);
+        verify(userRepository, times(2)).findAccountByUsername(ALICE);
+    }
+
+    @Test
+    void stillEvictsLocallyWhenPublishingFails() {
+        cache.loadUserByUsername(ALICE);
+        doThrow(new IllegalStateException("redis down")).when(redisTemplate).convertAndSend(anyString(), anyString());
+
+        cache.invalidate(ALICE);
+
+        cache.loadUserByUsername(ALICE);
+        verify(userRepository, times(2)).findAccountByUsername(ALICE);
+    }
+
+    private static UserAccountView account(String username) {
+        UserAccountView account = mock(UserAccountView.class);
+        when(account.getId()).thenReturn(UUID.randomUUID());
+        when(account.getUsername()).thenReturn(username);
+        when(account.getPassword()).thenReturn("secret");
+        when(account.isEnabled()).thenReturn(true);
+        when(account.isAccountNonLocked()).thenReturn(true);
+        when(account.isAccountNonExpired()).thenReturn(true);
+        when(account.isCredentialsNonExpired()).thenReturn(true);
+        return account;
+    }
+}